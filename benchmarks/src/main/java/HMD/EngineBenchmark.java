@@ -0,0 +1,113 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JMH benchmarks comparing the generation engines on the same inputs: the genall
+ * function, the streaming generator and the parallel generator. Each one generates
+ * all the structures of the input and discards the output.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+	@Param({"C3C3C2C2C1C1","C3C3CC2CC","C3C3C1C1N1O"})
+	public String formula;
+
+	@Param({"4"})
+	public int threads;
+
+	private IAtomContainer input;
+	private List<Integer> indices;
+
+	@Setup(Level.Trial)
+	public void setup() throws CloneNotSupportedException, CDKException, IOException {
+		input= Generator.build(formula);
+		indices= Generator.ecindices(input);
+	}
+
+	@Benchmark
+	public int genall() throws CloneNotSupportedException, CDKException, IOException {
+		Generator.uniquecheck.clear();
+		Generator.atomextlist.clear();
+		Generator.atomsatlist.clear();
+		List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
+		mols.add(input);
+		Generator.genall(mols,new ArrayList<Integer>(indices),new SDFWriter(new GeneratorBenchmark.NullWriter()));
+		return Generator.uniquecheck.size();
+	}
+
+	@Benchmark
+	public int streaming() throws CloneNotSupportedException, CDKException, IOException {
+		return new StreamingGenerator(input,indices).generate(new NullSink());
+	}
+
+	@Benchmark
+	public int parallel() throws CloneNotSupportedException, CDKException, IOException {
+		ParallelGenerator parallel= new ParallelGenerator(threads);
+		int count= parallel.genall(input,indices,new NullSink());
+		parallel.shutdown();
+		return count;
+	}
+
+	/**
+	 * Discards the structures.
+	 */
+	static final class NullSink implements StructureSink {
+		public void write(IAtomContainer mol) {
+		}
+
+		public void close() {
+		}
+	}
+}
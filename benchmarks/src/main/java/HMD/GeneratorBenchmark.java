@@ -0,0 +1,172 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JMH benchmarks of the main functions of the Generator class, for the same inputs
+ * as the tests and some inputs with heteroatoms. The intermediate molecule is the
+ * first extension of the input saturated at its first index, as visited by genall.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import com.google.common.collect.ListMultimap;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+	@Param({"C3C3C2C2C1C1","C3C3CC2CC","C3C3C1C1N1O","C3C2C2N2O1","C3C3C2O1S1"})
+	public String formula;
+
+	private IAtomContainer input;
+	private List<Integer> indices;
+	private IAtomContainer intermediate;
+	private MoleculeGraph graph;
+	private int index;
+	private SDFWriter outFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws CloneNotSupportedException, CDKException, IOException {
+		input= Generator.build(formula);
+		indices= Generator.ecindices(input);
+		intermediate= input;
+		while(Generator.satcheck(intermediate,indices.get(0))) {
+			intermediate= Generator.atomext(intermediate,indices.get(0),new ArrayList<IAtomContainer>()).get(0);
+		}
+		//The next index which is not saturated yet.
+		index= indices.get(0);
+		for(int i: indices) {
+			if(Generator.satcheck(intermediate,i)) {
+				index= i;
+				break;
+			}
+		}
+		graph= new MoleculeGraph(intermediate);
+		outFile= new SDFWriter(new NullWriter());
+	}
+
+	/**
+	 * Clears the static lists of the Generator before the functions using them.
+	 */
+	private void cleanlists() {
+		Generator.uniquecheck.clear();
+		Generator.atomextlist.clear();
+		Generator.atomsatlist.clear();
+	}
+
+	@Benchmark
+	public IAtomContainer build() {
+		return Generator.build(formula);
+	}
+
+	@Benchmark
+	public long[] canonsym() {
+		return Generator.canonsym(intermediate);
+	}
+
+	@Benchmark
+	public ListMultimap<String,Integer> ecenumlist() throws CloneNotSupportedException, CDKException, IOException {
+		return Generator.ecenumlist(intermediate);
+	}
+
+	@Benchmark
+	public List<IAtomContainer> atomext() throws CloneNotSupportedException, CDKException, IOException {
+		return Generator.atomext(intermediate,index,new ArrayList<IAtomContainer>());
+	}
+
+	@Benchmark
+	@Measurement(iterations = 5, time = 5)
+	public List<IAtomContainer> atomsat() throws CloneNotSupportedException, CDKException, IOException {
+		cleanlists();
+		return new ArrayList<IAtomContainer>(Generator.atomsat(input,indices.get(0),outFile));
+	}
+
+	@Benchmark
+	@Measurement(iterations = 5, time = 5)
+	public List<IAtomContainer> genall() throws CloneNotSupportedException, CDKException, IOException {
+		cleanlists();
+		List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
+		mols.add(input);
+		Generator.genall(mols,new ArrayList<Integer>(indices),outFile);
+		return mols;
+	}
+
+	/**
+	 * The equivalence classes of the primitive graph, without the class cache.
+	 */
+	@Benchmark
+	public int[][] graphecenumlist() {
+		return SymmetryClasses.calculate(graph);
+	}
+
+	/**
+	 * The extensions of the primitive graph, with the class cache.
+	 */
+	@Benchmark
+	public List<MoleculeGraph> graphatomext() {
+		return graph.atomext(index);
+	}
+
+	/**
+	 * Discards the sdf output.
+	 */
+	static final class NullWriter extends Writer {
+		public void write(char[] cbuf, int off, int len) {
+		}
+
+		public void flush() {
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The sink writing the structures to an sdf file on its own thread. The generator
+ * only puts the structures to a bounded queue; the writer thread takes them in
+ * batches, serialises them to molfiles and writes them over a large buffer,
+ * optionally gzip compressed. If the queue is full, the generator waits for the
+ * writer instead of keeping more structures in memory.
+ *
+ * An error of the writer thread is thrown by the next write or by close. Close
+ * writes the remaining structures of the queue and closes the file. Flush waits
+ * until the structures queued so far are written to the file.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+public class AsyncSDFSink implements StructureSink {
+	public static final int CAPACITY= 4096;
+	public static final int BATCHSIZE= 256;
+	public static final int BUFFERSIZE= 1<<20;
+
+	//Marks the end of the queue.
+	private static final IAtomContainer END= new org.openscience.cdk.silent.AtomContainer();
+	//Marks a flush request in the queue.
+	private static final IAtomContainer FLUSH= new org.openscience.cdk.silent.AtomContainer();
+
+	private final BlockingQueue<IAtomContainer> queue;
+	private final int batchsize;
+	private final OutputStream out;
+	private final Thread writer;
+	private final Semaphore flushed= new Semaphore(0);
+	private volatile Throwable failure= null;
+	private volatile long written= 0;
+	private boolean closed= false;
+
+	/**
+	 * Writes to the file of the given path, gzip compressed if gzip is true.
+	 */
+	public AsyncSDFSink(String path, boolean gzip) throws IOException {
+		this(gzip ? new GZIPOutputStream(new FileOutputStream(path),BUFFERSIZE) : new FileOutputStream(path),CAPACITY,BATCHSIZE);
+	}
+
+	/**
+	 * Continues the sdf file of the given path from the offset, as after a checkpoint. The
+	 * structures written after the offset are removed.
+	 */
+	public AsyncSDFSink(String path, long offset) throws IOException {
+		this(truncate(path,offset),CAPACITY,BATCHSIZE);
+	}
+
+	/**
+	 * The stream appending to the file after removing its bytes from the offset.
+	 */
+	static OutputStream truncate(String path, long offset) throws IOException {
+		try(RandomAccessFile file= new RandomAccessFile(path,"rw")) {
+			if(file.length()<offset) {
+				throw new IOException("The output file is shorter than its checkpoint: "+path);
+			}
+			file.setLength(offset);
+		}
+		return new FileOutputStream(path,true);
+	}
+
+	public AsyncSDFSink(OutputStream out, int capacity, int batchsize) {
+		this.queue= new ArrayBlockingQueue<IAtomContainer>(capacity);
+		this.batchsize= batchsize;
+		this.out= out;
+		this.writer= new Thread(new Runnable() {
+			public void run() {
+				writeall();
+			}
+		},"HMD-sdf-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Puts the structure to the queue. Waits only if the queue is full.
+	 */
+	public void write(IAtomContainer mol) throws CDKException, IOException {
+		if(closed) throw new IOException("The sink is closed");
+		put(mol);
+		check();
+	}
+
+	/**
+	 * Waits until the writer thread writes the queued structures and flushes the file.
+	 */
+	public void flush() throws IOException {
+		if(closed) throw new IOException("The sink is closed");
+		put(FLUSH);
+		try {
+			while(!flushed.tryAcquire(100,TimeUnit.MILLISECONDS)) {
+				check();
+			}
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing the sdf writer",e);
+		}
+		check();
+	}
+
+	private void put(IAtomContainer mol) throws IOException {
+		try {
+			while(!queue.offer(mol,100,TimeUnit.MILLISECONDS)) {
+				check();
+			}
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the sdf writer",e);
+		}
+	}
+
+	/**
+	 * The number of structures written to the file so far.
+	 */
+	public long written() {
+		return written;
+	}
+
+	/**
+	 * Writes the remaining structures and closes the file.
+	 */
+	public void close() throws IOException {
+		if(closed) return;
+		closed= true;
+		try {
+			while(writer.isAlive() && !queue.offer(END,100,TimeUnit.MILLISECONDS));
+			writer.join();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the sdf writer",e);
+		}
+		check();
+	}
+
+	private void check() throws IOException {
+		if(failure!=null) {
+			throw new IOException("The sdf writer failed",failure);
+		}
+	}
+
+	/**
+	 * The loop of the writer thread. The structures are taken in batches until the end mark.
+	 */
+	private void writeall() {
+		BufferedWriter buffer= new BufferedWriter(new OutputStreamWriter(out,StandardCharsets.UTF_8),BUFFERSIZE);
+		SDFWriter sdf= new SDFWriter(buffer);
+		List<IAtomContainer> batch= new ArrayList<IAtomContainer>(batchsize);
+		try {
+			boolean end= false;
+			while(!end) {
+				batch.add(queue.take());
+				queue.drainTo(batch,batchsize-1);
+				for(IAtomContainer ac:batch) {
+					if(ac==END) {
+						end= true;
+						break;
+					}
+					if(ac==FLUSH) {
+						buffer.flush();
+						flushed.release();
+						continue;
+					}
+					sdf.write(ac);
+					written++;
+				}
+				batch.clear();
+			}
+		}catch(Throwable e) {
+			failure= e;
+			queue.clear();
+		}finally {
+			try {
+				sdf.close();
+			}catch(Throwable e) {
+				if(failure==null) failure= e;
+			}
+		}
+	}
+}
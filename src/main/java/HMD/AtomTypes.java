@@ -0,0 +1,180 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The atom types of the generator: the elements are coded by their atomic numbers and
+ * their valences are kept in an array of these codes, so the valence of an atom is an
+ * array lookup instead of a map lookup with its symbol.
+ *
+ * The default valences are the usual ones of the elements; the higher valences, like 5
+ * for N and P or 4 and 6 for S, are given as overrides, for example "N=5,S=6". The
+ * atoms built by the Generator carry the valences of the types they were built with,
+ * so the generators use the overrides of their inputs.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.interfaces.IAtom;
+
+public final class AtomTypes {
+	public static final AtomTypes DEFAULT= new AtomTypes(new String[] {"C","N","O","S","P","F","Cl","Br","I","H"},new int[] {4,3,2,2,3,1,1,1,1,1});
+
+	private final int[] valences;
+	private final Map<String,Integer> overrides;
+
+	private AtomTypes(String[] symbols, int[] valences) {
+		this.valences= new int[Elements.values().length];
+		this.overrides= new LinkedHashMap<String,Integer>();
+		for(int e=0;e<symbols.length;e++) {
+			this.valences[code(symbols[e])]= valences[e];
+		}
+	}
+
+	private AtomTypes(AtomTypes types) {
+		this.valences= types.valences.clone();
+		this.overrides= new LinkedHashMap<String,Integer>(types.overrides);
+	}
+
+	/**
+	 * The code of the element, its atomic number.
+	 */
+	public static int code(String symbol) {
+		Elements element= Elements.ofString(symbol);
+		if(element==Elements.Unknown || !element.symbol().equals(symbol)) {
+			throw new IllegalArgumentException("Unknown element: "+symbol);
+		}
+		return element.number();
+	}
+
+	/**
+	 * The valence of the element of the code, 0 if it has no valence.
+	 */
+	public int valence(int code) {
+		return valences[code];
+	}
+
+	public int valence(String symbol) {
+		return valences[code(symbol)];
+	}
+
+	/**
+	 * The valence of the atom: the one given by type, or the one of its element.
+	 */
+	public int valence(IAtom atom) {
+		Integer valence= atom.getValency();
+		if(valence!=null) return valence;
+		Integer code= atom.getAtomicNumber();
+		return valences[code!=null ? code : code(atom.getSymbol())];
+	}
+
+	/**
+	 * The types with the valence of the element replaced.
+	 */
+	public AtomTypes valence(String symbol, int valence) {
+		if(valence<1 || valence>8) {
+			throw new IllegalArgumentException("Invalid valence of "+symbol+": "+valence);
+		}
+		AtomTypes types= new AtomTypes(this);
+		types.valences[code(symbol)]= valence;
+		types.overrides.put(symbol,valence);
+		return types;
+	}
+
+	/**
+	 * Sets the atomic number and the valence of the atom.
+	 */
+	public void type(IAtom atom) {
+		int code= code(atom.getSymbol());
+		int valence= valences[code];
+		if(valence==0) {
+			throw new IllegalArgumentException("No valence for the element "+atom.getSymbol());
+		}
+		atom.setAtomicNumber(code);
+		atom.setValency(valence);
+	}
+
+	/**
+	 * The valences of the elements by their symbols.
+	 */
+	public Map<String,Integer> map() {
+		Map<String,Integer> map= new LinkedHashMap<String,Integer>();
+		for(Elements element: Elements.values()) {
+			if(valences[element.number()]>0) map.put(element.symbol(),valences[element.number()]);
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * The default types with the overrides like "N=5,S=6".
+	 */
+	public static AtomTypes parse(String spec) {
+		AtomTypes types= DEFAULT;
+		for(String override: spec.split(",")) {
+			String[] parts= override.trim().split("=");
+			if(parts.length!=2) {
+				throw new IllegalArgumentException("Not a valence like N=5: "+override);
+			}
+			try {
+				types= types.valence(parts[0].trim(),Integer.parseInt(parts[1].trim()));
+			}catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Not a valence like N=5: "+override);
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * The default types with the valences of the map where they differ. The elements not in
+	 * the map keep their default valences.
+	 */
+	public static AtomTypes of(Map<String,Integer> valences) {
+		AtomTypes types= DEFAULT;
+		for(Map.Entry<String,Integer> entry: valences.entrySet()) {
+			if(DEFAULT.valence(entry.getKey())!=entry.getValue()) {
+				types= types.valence(entry.getKey(),entry.getValue());
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * The overrides of the default valences, in the format of parse.
+	 */
+	public String toString() {
+		StringBuilder spec= new StringBuilder();
+		for(Map.Entry<String,Integer> override: overrides.entrySet()) {
+			if(spec.length()>0) spec.append(',');
+			spec.append(override.getKey()).append('=').append(override.getValue());
+		}
+		return spec.toString();
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * Generates the structures of many inputs in the same process. Each line of the batch
+ * file is a molecular information with an optional name for its output; the blank lines
+ * and the lines starting with # are skipped:
+ *
+ *   C3C3C2C2C1C1 hexene
+ *   C3C3CC2CC
+ *
+ * Each input is a GenerationJob with its own output file, [filedir][name].sdf, and its
+ * own metrics. Without a name, the molecular information is the name; the names of the
+ * jobs are different, so no two jobs write the same file. The jobs get the options of
+ * the command line, also its threads, progress, checkpoints and shard, the ones of each
+ * job with its name. The jobs run on a fixed pool of threads, so the classes of CDK and the JIT compiled code are shared by
+ * the jobs instead of being loaded again for each input. A summary line is printed for
+ * each job, in the order of the batch file, with the fingerprint of the job if requested.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Batch {
+	private final int threads;
+
+	/**
+	 * The given number of jobs run at the same time.
+	 */
+	public Batch(int threads) {
+		this.threads= Math.max(1,threads);
+	}
+
+	/**
+	 * The jobs of the lines of the batch file, with the options of the given job. A name given
+	 * to more than one job is rejected.
+	 */
+	public static List<GenerationJob> read(Reader in, GenerationJob options) throws IOException {
+		List<GenerationJob> jobs= new ArrayList<GenerationJob>();
+		Set<String> names= new HashSet<String>();
+		BufferedReader reader= new BufferedReader(in);
+		String line;
+		while((line=reader.readLine())!=null) {
+			line= line.trim();
+			if(line.isEmpty() || line.startsWith("#")) continue;
+			String[] fields= line.split("\\s+");
+			GenerationJob job= new GenerationJob(fields[0],options.filedir);
+			job.name= fields.length>1 ? fields[1] : fields[0];
+			if(!names.add(job.name)) {
+				throw new IllegalArgumentException("The name "+job.name+" is given to more than one job of the batch");
+			}
+			job.verbose= options.verbose;
+			job.threads= options.threads;
+			job.gzip= options.gzip;
+			job.dedup= options.dedup;
+			job.progress= options.progress;
+			job.checkpoint= options.checkpoint;
+			job.resume= options.resume;
+			job.shard= options.shard;
+			job.pruning= options.pruning;
+			job.orderly= options.orderly;
+			job.cache= options.cache;
+			job.formula= options.formula;
+			job.countonly= options.countonly;
+			job.sample= options.sample;
+			job.seed= options.seed;
+			job.constraints= options.constraints;
+			job.format= options.format;
+			job.memory= options.memory;
+			job.types= options.types;
+			job.sorted= options.sorted;
+			job.fingerprint= options.fingerprint;
+			jobs.add(job);
+		}
+		return jobs;
+	}
+
+	/**
+	 * Runs the jobs and prints their summary lines. Returns the number of failed jobs.
+	 */
+	public int run(List<GenerationJob> jobs, PrintStream out) throws InterruptedException {
+		ExecutorService pool= Executors.newFixedThreadPool(threads);
+		List<Future<Long>> results= new ArrayList<Future<Long>>();
+		for(final GenerationJob job: jobs) {
+			results.add(pool.submit(new Callable<Long>() {
+				public Long call() throws Exception {
+					return job.run();
+				}
+			}));
+		}
+		pool.shutdown();
+		int failed= 0;
+		for(int i=0;i<jobs.size();i++) {
+			try {
+				long count= results.get(i).get();
+				out.println(summary(jobs.get(i),count));
+			}catch(ExecutionException e) {
+				failed++;
+				out.println(jobs.get(i).name+"\t"+jobs.get(i).molinfo+"\tfailed: "+e.getCause());
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * The name, the input, the number of structures and the duration of the job.
+	 */
+	static String summary(GenerationJob job, long count) {
+		DecimalFormat d= new DecimalFormat("0.###");
+		String fingerprint= job.metrics().getFingerprint();
+		return job.name+"\t"+job.molinfo+"\t"+count+"\t"+d.format(job.metrics().getElapsedSeconds())+(fingerprint==null ? "" : "\t"+fingerprint);
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * Reads the files of BinarySink, one structure after the other. The files ending
+ * with .gz are read as gzip files. The structures are built as atom containers
+ * with their implicit hydrogens, as the ones of the generators.
+ *
+ * The main function converts a binary file to sdf or to SMILES:
+ *
+ * java -cp HMD.jar HMD.BinaryReader -o output.sdf output.hmd
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+public class BinaryReader implements Iterator<IAtomContainer>, Closeable {
+	private static final IBond.Order[] ORDERS= {null,IBond.Order.SINGLE,IBond.Order.DOUBLE,IBond.Order.TRIPLE,
+			IBond.Order.QUADRUPLE,IBond.Order.QUINTUPLE,IBond.Order.SEXTUPLE};
+
+	private final DataInputStream in;
+	private IAtomContainer next;
+	private long read= 0;
+
+	public BinaryReader(String path) throws IOException {
+		this(path.endsWith(".gz") ? new GZIPInputStream(new FileInputStream(path),AsyncSDFSink.BUFFERSIZE) : new FileInputStream(path));
+	}
+
+	public BinaryReader(InputStream in) throws IOException {
+		this.in= new DataInputStream(new BufferedInputStream(in,AsyncSDFSink.BUFFERSIZE));
+		if(this.in.readInt()!=BinarySink.MAGIC) throw new IOException("Not a binary file of HMD");
+		int version= this.in.readUnsignedByte();
+		if(version!=BinarySink.VERSION) throw new IOException("Unknown version of the binary file: "+version);
+		this.next= structure();
+	}
+
+	/**
+	 * The next structure of the file, null at the end of the file.
+	 */
+	private IAtomContainer structure() throws IOException {
+		int n;
+		try {
+			n= in.readUnsignedShort();
+		}catch(EOFException e) {
+			return null;
+		}
+		IAtomContainer mol= structure(in,n);
+		read++;
+		return mol;
+	}
+
+	/**
+	 * The structure of the record of n atoms, after its number of atoms.
+	 */
+	static IAtomContainer structure(DataInput in, int n) throws IOException {
+		IAtomContainer mol= new org.openscience.cdk.silent.AtomContainer();
+		for(int i=0;i<n;i++) {
+			int number= in.readUnsignedByte();
+			mol.addAtom(new org.openscience.cdk.silent.Atom(Elements.ofNumber(number).symbol()));
+			mol.getAtom(i).setImplicitHydrogenCount(in.readUnsignedByte());
+		}
+		byte[] orders= new byte[(n*(n-1)/2+1)/2];
+		in.readFully(orders);
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				int pair= BinarySink.pair(i,j,n);
+				int order= (orders[pair>>1]>>((pair&1)<<2)) & 0xF;
+				if(order>=ORDERS.length) throw new IOException("Not a bond order: "+order);
+				if(order!=0) mol.addBond(i,j,ORDERS[order]);
+			}
+		}
+		return mol;
+	}
+
+	public boolean hasNext() {
+		return next!=null;
+	}
+
+	/**
+	 * The next structure. An error of the file is thrown as an IllegalStateException.
+	 */
+	public IAtomContainer next() {
+		if(next==null) throw new NoSuchElementException();
+		IAtomContainer mol= next;
+		try {
+			next= structure();
+		}catch(IOException e) {
+			throw new IllegalStateException("The binary file can not be read",e);
+		}
+		return mol;
+	}
+
+	/**
+	 * The number of structures read so far.
+	 */
+	public long read() {
+		return read;
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	public static void main(String[] args) throws CDKException, IOException {
+		Options options = new Options();
+		options.addOption(Option.builder("o")
+			     .required(true)
+			     .hasArg()
+			     .longOpt("output")
+			     .desc("The sdf file, or the SMILES file if it ends with .smi (required)")
+			     .build());
+		CommandLine cmd;
+		try {
+			cmd = new DefaultParser().parse(options, args);
+			if(cmd.getArgList().size()!=1) throw new ParseException("No input file");
+		}catch(ParseException e) {
+			HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("java -cp HMD.jar HMD.BinaryReader -o <file> <binary file>",
+					"\nConverts a binary file of HMD to sdf or SMILES.\n\n",options,"");
+			return;
+		}
+		String output= cmd.getOptionValue("output");
+		StructureSink sink= output.endsWith(".smi") ? new SmilesSink(output,false) : new AsyncSDFSink(output,false);
+		try(BinaryReader reader= new BinaryReader(cmd.getArgList().get(0))) {
+			while(reader.hasNext()) {
+				sink.write(reader.next());
+			}
+		}finally {
+			sink.close();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The sink writing the structures in the binary format of HMD, optionally gzip
+ * compressed. The file starts with the magic number HMDB and the version. Each
+ * structure is written as
+ *
+ *   the number of atoms n                          2 bytes
+ *   the atomic number and the implicit hydrogens   2 bytes for each atom
+ *   the bond orders of the atom pairs (i,j), i<j   4 bits for each pair
+ *
+ * in the order (0,1),(0,2)..(0,n-1),(1,2).. of the pairs, two orders in a byte. A
+ * structure of ten atoms takes 45 bytes instead of about 1.5 kilobytes of molfile.
+ * The files are read by BinaryReader.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+public class BinarySink implements StructureSink {
+	public static final int MAGIC= 0x484D4442;
+	public static final int VERSION= 1;
+
+	private final DataOutputStream out;
+	private long written= 0;
+
+	/**
+	 * Writes to the file of the given path, gzip compressed if gzip is true.
+	 */
+	public BinarySink(String path, boolean gzip) throws IOException {
+		this(gzip ? new GZIPOutputStream(new FileOutputStream(path),AsyncSDFSink.BUFFERSIZE) : new FileOutputStream(path),true);
+	}
+
+	/**
+	 * Continues the file of the given path from the offset, as after a checkpoint. The header
+	 * is already in the file.
+	 */
+	public BinarySink(String path, long offset) throws IOException {
+		this(AsyncSDFSink.truncate(path,offset),false);
+	}
+
+	public BinarySink(OutputStream out) throws IOException {
+		this(out,true);
+	}
+
+	private BinarySink(OutputStream out, boolean header) throws IOException {
+		this.out= new DataOutputStream(new BufferedOutputStream(out,AsyncSDFSink.BUFFERSIZE));
+		if(header) {
+			this.out.writeInt(MAGIC);
+			this.out.writeByte(VERSION);
+		}
+	}
+
+	public void write(IAtomContainer mol) throws CDKException, IOException {
+		write(out,mol);
+		written++;
+	}
+
+	/**
+	 * Writes the record of the structure, without the header of the file.
+	 */
+	static void write(DataOutput out, IAtomContainer mol) throws CDKException, IOException {
+		int n= mol.getAtomCount();
+		if(n>0xFFFF) throw new CDKException("Too many atoms for the binary format: "+n);
+		out.writeShort(n);
+		for(IAtom atom: mol.atoms()) {
+			Integer hydrogens= atom.getImplicitHydrogenCount();
+			out.writeByte(atom.getAtomicNumber());
+			out.writeByte(hydrogens==null ? 0 : hydrogens);
+		}
+		byte[] orders= new byte[(n*(n-1)/2+1)/2];
+		for(IBond bond: mol.bonds()) {
+			int u= mol.indexOf(bond.getAtom(0));
+			int v= mol.indexOf(bond.getAtom(1));
+			int pair= pair(Math.min(u,v),Math.max(u,v),n);
+			orders[pair>>1]|= bond.getOrder().numeric()<<((pair&1)<<2);
+		}
+		out.write(orders);
+	}
+
+	/**
+	 * The position of the atom pair (i,j), i<j, in the bond orders.
+	 */
+	static int pair(int i, int j, int n) {
+		return i*(2*n-i-1)/2+j-i-1;
+	}
+
+	/**
+	 * The number of structures written so far.
+	 */
+	public long written() {
+		return written;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The duplicate check with the 128 bit canonical hashes of the structures. Only
+ * the hashes are stored, in a primitive hash set, so each structure takes a few
+ * bytes instead of an InChI string.
+ *
+ * In the verification mode, the InChIs are also generated and the InChI check is
+ * used for the result. The structures where the two checks disagree are counted
+ * as mismatches, either hash collisions or failures of the canonical labelling.
+ *
+ * With the bond orders, the structures differing only in the positions of their
+ * multiple bonds are different structures, as in the orderly generation.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.openscience.cdk.exception.CDKException;
+
+public class CanonicalDeduplicator implements Deduplicator {
+	private final LongHashSet hashes= new LongHashSet();
+	private final InChIDeduplicator inchis;
+	private final boolean orders;
+	private long mismatches= 0;
+
+	public CanonicalDeduplicator() {
+		this(false);
+	}
+
+	public CanonicalDeduplicator(boolean verify) {
+		this(verify,false);
+	}
+
+	/**
+	 * The check with the hashes of the bond orders if orders is true.
+	 */
+	public CanonicalDeduplicator(boolean verify, boolean orders) {
+		this.inchis= verify ? new InChIDeduplicator() : null;
+		this.orders= orders;
+	}
+
+	public boolean add(MoleculeGraph mol) throws CDKException {
+		long[] hash= orders ? mol.orderhash(null) : mol.hash();
+		boolean added;
+		synchronized(hashes) {
+			added= hashes.add(hash[0],hash[1]);
+		}
+		if(inchis!=null) {
+			boolean unique= inchis.add(mol);
+			if(unique!=added) {
+				synchronized(hashes) {
+					mismatches++;
+				}
+			}
+			return unique;
+		}
+		return added;
+	}
+
+	public long size() {
+		if(inchis!=null) return inchis.size();
+		synchronized(hashes) {
+			return hashes.size();
+		}
+	}
+
+	public void save(DataOutput out) throws IOException {
+		synchronized(hashes) {
+			hashes.save(out);
+			out.writeLong(mismatches);
+		}
+		if(inchis!=null) inchis.save(out);
+	}
+
+	public void load(DataInput in) throws IOException {
+		synchronized(hashes) {
+			hashes.load(in);
+			mismatches= in.readLong();
+		}
+		if(inchis!=null) inchis.load(in);
+	}
+
+	/**
+	 * The number of structures where the hash and the InChI checks disagree, in the verification mode.
+	 */
+	public long mismatches() {
+		synchronized(hashes) {
+			return mismatches;
+		}
+	}
+}
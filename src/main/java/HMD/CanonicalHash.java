@@ -0,0 +1,222 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The 128 bit hash of the canonical form of a molecule. The canonical labelling is
+ * calculated with the Canon class of CDK. The atoms are labelled with their element,
+ * implicit hydrogens and charge. Two molecules have the same hash if they are
+ * isomorphic; different molecules have the same hash only by a hash collision.
+ *
+ * By default, only the connectivity is hashed, like the main layer of InChI. Thus,
+ * the structures differing only in the positions of the multiple bonds, such as the
+ * resonance forms, have the same hash. If the bond orders are needed, the bonds with
+ * higher orders are subdivided by an extra vertex labelled with the bond order,
+ * since Canon only considers the connectivity of the atoms.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openscience.cdk.graph.invariant.Canon;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+public class CanonicalHash {
+	//The vertices of bond orders are labelled above all the atom labels.
+	private static final long ORDERLABEL= 1L<<40;
+
+	//Canon needs an atom container of the size of the graph; only the atomic numbers are read.
+	private static final ConcurrentHashMap<Integer,IAtomContainer> placeholders= new ConcurrentHashMap<Integer,IAtomContainer>();
+
+	/**
+	 * The label of an atom from its atomic number, implicit hydrogens and formal charge.
+	 */
+	public static long atomlabel(int atomicnumber, int hydrogens, int charge) {
+		return ((long)atomicnumber<<16) | ((long)hydrogens<<8) | (charge+128);
+	}
+
+	public static long atomlabel(IAtom atom) {
+		Integer charge= atom.getFormalCharge();
+		return atomlabel(atom.getAtomicNumber(),atom.getImplicitHydrogenCount(),charge==null ? 0 : charge);
+	}
+
+	/**
+	 * The hash of the connectivity of the molecule as two longs.
+	 */
+	public static long[] hash(IAtomContainer mol) {
+		return hash(mol,false);
+	}
+
+	/**
+	 * The hash of the molecule as two longs, with or without the bond orders.
+	 */
+	public static long[] hash(IAtomContainer mol, boolean orders) {
+		int n= mol.getAtomCount();
+		long[] atoms= new long[n];
+		int[] degree= new int[n];
+		for(int i=0;i<n;i++) {
+			atoms[i]= atomlabel(mol.getAtom(i));
+		}
+		for(IBond bond: mol.bonds()) {
+			degree[mol.indexOf(bond.getAtom(0))]++;
+			degree[mol.indexOf(bond.getAtom(1))]++;
+		}
+		int[][] adj= new int[n][];
+		int[][] ord= new int[n][];
+		for(int i=0;i<n;i++) {
+			adj[i]= new int[degree[i]];
+			ord[i]= new int[degree[i]];
+			degree[i]= 0;
+		}
+		for(IBond bond: mol.bonds()) {
+			int u= mol.indexOf(bond.getAtom(0));
+			int v= mol.indexOf(bond.getAtom(1));
+			int order= bond.getOrder().numeric();
+			adj[u][degree[u]]= v;
+			ord[u][degree[u]++]= order;
+			adj[v][degree[v]]= u;
+			ord[v][degree[v]++]= order;
+		}
+		return hash(atoms,adj,orders ? ord : null);
+	}
+
+	/**
+	 * The hash of a molecule given by its atom labels, the adjacency list of the atoms and the
+	 * orders of the bonds in the same layout as the adjacency list. If the orders are null, only
+	 * the connectivity is hashed.
+	 */
+	public static long[] hash(long[] atoms, int[][] adj, int[][] ord) {
+		return hash(atoms,adj,ord,null);
+	}
+
+	/**
+	 * Same as hash but the canonical labels of the atoms are also given in the labelling array,
+	 * if it is not null. The labels are in the canonical order of the atoms but they are not
+	 * consecutive if there are multiple bonds.
+	 */
+	public static long[] hash(long[] atoms, int[][] adj, int[][] ord, long[] labelling) {
+		int n= atoms.length;
+		int multiple= 0;
+		for(int u=0;u<n && ord!=null;u++) {
+			for(int j=0;j<adj[u].length;j++) {
+				if(u<adj[u][j] && ord[u][j]>1) multiple++;
+			}
+		}
+
+		//The subdivided graph: the multiple bonds are replaced by a vertex of the bond order.
+		int size= n+multiple;
+		int[][] g= new int[size][];
+		long[] labels= new long[size];
+		for(int u=0;u<n;u++) {
+			g[u]= new int[adj[u].length];
+			labels[u]= atoms[u];
+		}
+		int vertex= n;
+		for(int u=0;u<n;u++) {
+			for(int j=0;j<adj[u].length;j++) {
+				int v= adj[u][j];
+				if(ord==null || ord[u][j]==1) {
+					g[u][j]= v;
+				}else if(u<v) {
+					g[vertex]= new int[] {u,v};
+					labels[vertex]= ORDERLABEL+ord[u][j];
+					g[u][j]= vertex;
+					g[v][position(adj[v],u)]= vertex;
+					vertex++;
+				}
+			}
+		}
+
+		long[] canon= Canon.label(placeholder(size),g,labels);
+		if(labelling!=null) System.arraycopy(canon,0,labelling,0,n);
+		int[] order= new int[size];
+		for(int v=0;v<size;v++) {
+			order[(int)canon[v]-1]= v;
+		}
+
+		//The labels and the neighbours of the vertices in the canonical order.
+		long h1= 0x6A09E667F3BCC908L, h2= 0xBB67AE8584CAA73BL;
+		int[] neighbours= new int[8];
+		for(int i=0;i<size;i++) {
+			int v= order[i];
+			h1= mix(h1,labels[v]);
+			h2= mix2(h2,labels[v]);
+			int degree= g[v].length;
+			if(neighbours.length<degree) neighbours= new int[degree];
+			for(int j=0;j<degree;j++) {
+				neighbours[j]= (int)canon[g[v][j]];
+			}
+			Arrays.sort(neighbours,0,degree);
+			h1= mix(h1,-degree);
+			h2= mix2(h2,-degree);
+			for(int j=0;j<degree;j++) {
+				h1= mix(h1,neighbours[j]);
+				h2= mix2(h2,neighbours[j]);
+			}
+		}
+		return new long[] {finish(h1),finish(h2)};
+	}
+
+	private static int position(int[] adj, int v) {
+		for(int j=0;j<adj.length;j++) {
+			if(adj[j]==v) return j;
+		}
+		return -1;
+	}
+
+	private static IAtomContainer placeholder(int size) {
+		IAtomContainer ac= placeholders.get(size);
+		if(ac==null) {
+			ac= new org.openscience.cdk.silent.AtomContainer();
+			for(int i=0;i<size;i++) {
+				ac.addAtom(new org.openscience.cdk.silent.Atom("C"));
+			}
+			placeholders.putIfAbsent(size,ac);
+		}
+		return ac;
+	}
+
+	private static long mix(long h, long x) {
+		return Long.rotateLeft(h ^ (x*0x9E3779B97F4A7C15L),31)*0xBF58476D1CE4E5B9L;
+	}
+
+	private static long mix2(long h, long x) {
+		return Long.rotateLeft(h ^ (x*0xC2B2AE3D27D4EB4FL),27)*0x94D049BB133111EBL+0x52DCE729L;
+	}
+
+	private static long finish(long h) {
+		h^= h>>>33;
+		h*= 0xFF51AFD7ED558CCDL;
+		h^= h>>>33;
+		h*= 0xC4CEB9FE1A85EC53L;
+		h^= h>>>33;
+		return h;
+	}
+}
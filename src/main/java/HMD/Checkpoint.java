@@ -0,0 +1,153 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The checkpoint file of a streaming generation. The state of the generator is
+ * written periodically to a binary file with the length of the output file at
+ * that moment. After a crash, a new generator of the same input is restored from
+ * the checkpoint and the output file is truncated to the recorded length, so the
+ * generation continues without writing any structure twice.
+ *
+ * The checkpoint is first written to a temporary file and then moved over the old
+ * one, so a crash while writing leaves the previous checkpoint.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class Checkpoint {
+	private static final int MAGIC= 0x484D4443; //HMDC
+	private static final int VERSION= 1;
+
+	private final File file;
+	private final File output;
+	private final String input;
+	private final long interval;
+	private long last= System.nanoTime();
+
+	/**
+	 * The checkpoint of the generation of the input, written to the file every given number
+	 * of seconds. The output is the sdf file written by the sink of the generation.
+	 */
+	public Checkpoint(File file, File output, String input, long seconds) {
+		this.file= file;
+		this.output= output;
+		this.input= input;
+		this.interval= seconds*1000000000L;
+	}
+
+	public boolean exists() {
+		return file.exists();
+	}
+
+	/**
+	 * True if the interval has passed since the last checkpoint.
+	 */
+	public boolean due() {
+		return System.nanoTime()-last >= interval;
+	}
+
+	/**
+	 * Flushes the sink and writes the state of the generator with the length of the output.
+	 */
+	public void save(StreamingGenerator generator, StructureSink sink) throws IOException {
+		sink.flush();
+		long offset= output.length();
+		File temp= new File(file.getPath()+".tmp");
+		FileOutputStream stream= new FileOutputStream(temp);
+		try(DataOutputStream out= new DataOutputStream(new BufferedOutputStream(stream))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(input);
+			out.writeLong(offset);
+			generator.save(out);
+			out.flush();
+			stream.getFD().sync();
+		}
+		Files.move(temp.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		last= System.nanoTime();
+	}
+
+	/**
+	 * Restores the generator from the checkpoint and returns the length of the output file at
+	 * the checkpoint.
+	 */
+	public long restore(StreamingGenerator generator) throws IOException {
+		try(DataInputStream in= open()) {
+			long offset= in.readLong();
+			generator.restore(in);
+			return offset;
+		}
+	}
+
+	/**
+	 * The length of the output file at the checkpoint, to open the output before the
+	 * generator is restored.
+	 */
+	public long offset() throws IOException {
+		try(DataInputStream in= open()) {
+			return in.readLong();
+		}
+	}
+
+	/**
+	 * Opens the checkpoint after its header, checked to be the one of the input.
+	 */
+	private DataInputStream open() throws IOException {
+		DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt()!=MAGIC || in.readInt()!=VERSION) {
+				throw new IOException("Not a checkpoint file: "+file);
+			}
+			String saved= in.readUTF();
+			if(!saved.equals(input)) {
+				throw new IOException("The checkpoint is of another input: "+saved);
+			}
+			return in;
+		}catch(IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Removes the checkpoint after the generation is finished.
+	 */
+	public void delete() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+}
@@ -0,0 +1,350 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The constraints of the generated structures, checked inside the search instead of
+ * filtering the output:
+ *
+ *   maxorder  : the highest bond order, globally or for a pair of elements
+ *   forbid    : the pairs of elements which can not be bonded
+ *   maxdegree : the highest number of bonded atoms of an element
+ *   rings     : the lowest and the highest number of rings
+ *   bad       : the fragments which can not be in a structure
+ *   good      : the fragments which should be in a structure
+ *
+ * The bonds are only added during the search, so the bond orders, the degrees and the
+ * rings only grow. These constraints are checked before a bond is added; a bond not
+ * allowed is not added, so all the structures beyond it are not built. The fragments
+ * are given as SMILES and matched on the atoms other than hydrogens with their exact
+ * bond orders. A bad fragment found on bonds which can not change anymore, since one
+ * of their atoms is saturated, stays in all the extensions, so the extension is not
+ * extended further. Otherwise, the fragments and the lowest number of rings are
+ * checked on the complete structures.
+ *
+ * The constraints can be given as a string like
+ *   maxorder=2;forbid=N-N,N-O,O-O;maxdegree=C:3;rings=0-1;bad=C=C=C;good=C=O
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openscience.cdk.exception.InvalidSmilesException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+public class Constraints {
+	private int maxorder= MoleculeGraph.MAXORDER;
+	private final Map<String,Integer> pairorders= new HashMap<String,Integer>();
+	private final Map<String,Integer> degrees= new HashMap<String,Integer>();
+	private int minrings= 0;
+	private int maxrings= Integer.MAX_VALUE;
+	private final List<Fragment> bad= new ArrayList<Fragment>();
+	private final List<Fragment> good= new ArrayList<Fragment>();
+
+	/**
+	 * The highest bond order of all the bonds.
+	 */
+	public Constraints maxorder(int order) {
+		this.maxorder= order;
+		return this;
+	}
+
+	/**
+	 * The highest bond order of the bonds between the elements.
+	 */
+	public Constraints maxorder(String a, String b, int order) {
+		pairorders.put(pair(a,b),order);
+		return this;
+	}
+
+	/**
+	 * The elements can not be bonded.
+	 */
+	public Constraints forbid(String a, String b) {
+		return maxorder(a,b,0);
+	}
+
+	/**
+	 * The highest number of bonded atoms of the atoms of the element.
+	 */
+	public Constraints maxdegree(String symbol, int degree) {
+		degrees.put(symbol,degree);
+		return this;
+	}
+
+	public Constraints rings(int min, int max) {
+		this.minrings= min;
+		this.maxrings= max;
+		return this;
+	}
+
+	/**
+	 * The fragment of the SMILES can not be in a structure.
+	 */
+	public Constraints bad(String smiles) {
+		bad.add(new Fragment(smiles));
+		return this;
+	}
+
+	/**
+	 * The fragment of the SMILES should be in a structure.
+	 */
+	public Constraints good(String smiles) {
+		good.add(new Fragment(smiles));
+		return this;
+	}
+
+	private static String pair(String a, String b) {
+		return a.compareTo(b)<=0 ? a+"-"+b : b+"-"+a;
+	}
+
+	/**
+	 * The constraints of the string, see the class description.
+	 */
+	public static Constraints parse(String spec) {
+		Constraints constraints= new Constraints();
+		for(String item: spec.split(";")) {
+			item= item.trim();
+			if(item.isEmpty()) continue;
+			int eq= item.indexOf('=');
+			if(eq<0) throw new IllegalArgumentException("Constraint without a value: "+item);
+			String key= item.substring(0,eq).trim();
+			String value= item.substring(eq+1).trim();
+			try {
+				if(key.equals("maxorder")) {
+					constraints.maxorder(Integer.parseInt(value));
+				}else if(key.equals("rings")) {
+					String[] range= value.split("-");
+					int min= Integer.parseInt(range[0]);
+					constraints.rings(min,range.length>1 ? Integer.parseInt(range[1]) : min);
+				}else {
+					for(String entry: value.split(",")) {
+						entry= entry.trim();
+						if(key.equals("forbid")) {
+							String[] symbols= entry.split("-");
+							if(symbols.length!=2) throw new IllegalArgumentException("Not a pair of elements: "+entry);
+							constraints.forbid(symbols[0],symbols[1]);
+						}else if(key.equals("maxdegree")) {
+							String[] degree= entry.split(":");
+							if(degree.length!=2) throw new IllegalArgumentException("Not an element with its degree: "+entry);
+							constraints.maxdegree(degree[0],Integer.parseInt(degree[1]));
+						}else if(key.equals("bad")) {
+							constraints.bad(entry);
+						}else if(key.equals("good")) {
+							constraints.good(entry);
+						}else {
+							throw new IllegalArgumentException("Unknown constraint: "+key);
+						}
+					}
+				}
+			}catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number in the constraint: "+item);
+			}
+		}
+		return constraints;
+	}
+
+	/**
+	 * The constraints as a string of parse, with the items in a fixed order. The highest
+	 * orders of the element pairs other than 0 are given as maxorder=C-N:2.
+	 */
+	public String toString() {
+		StringBuilder spec= new StringBuilder();
+		if(maxorder!=MoleculeGraph.MAXORDER) spec.append("maxorder=").append(maxorder).append(';');
+		StringBuilder forbid= new StringBuilder();
+		for(Map.Entry<String,Integer> pair: new TreeMap<String,Integer>(pairorders).entrySet()) {
+			if(pair.getValue()==0) {
+				forbid.append(forbid.length()==0 ? "forbid=" : ",").append(pair.getKey());
+			}else {
+				spec.append("maxorder=").append(pair.getKey()).append(':').append(pair.getValue()).append(';');
+			}
+		}
+		if(forbid.length()>0) spec.append(forbid).append(';');
+		StringBuilder degree= new StringBuilder();
+		for(Map.Entry<String,Integer> entry: new TreeMap<String,Integer>(degrees).entrySet()) {
+			degree.append(degree.length()==0 ? "maxdegree=" : ",").append(entry.getKey()).append(':').append(entry.getValue());
+		}
+		if(degree.length()>0) spec.append(degree).append(';');
+		if(minrings!=0 || maxrings!=Integer.MAX_VALUE) spec.append("rings=").append(minrings).append('-').append(maxrings).append(';');
+		fragments(spec,"bad",bad);
+		fragments(spec,"good",good);
+		if(spec.length()>0) spec.setLength(spec.length()-1);
+		return spec.toString();
+	}
+
+	private static void fragments(StringBuilder spec, String key, List<Fragment> fragments) {
+		for(int i=0;i<fragments.size();i++) {
+			spec.append(i==0 ? key+"=" : ",").append(fragments.get(i).smiles);
+		}
+		if(!fragments.isEmpty()) spec.append(';');
+	}
+
+	/**
+	 * The constraints of the atoms of the graph, as arrays of the atom indices.
+	 */
+	Table table(MoleculeGraph mol) {
+		return new Table(mol);
+	}
+
+	/**
+	 * The constraints for the atoms of an input. The limits of the atom pairs and of the
+	 * atoms are looked up once, so the checks of the search only read arrays.
+	 */
+	final class Table {
+		private final int n;
+		private final byte[] pairorders;
+		private final int[] degrees;
+		private final boolean degreelimits;
+
+		private Table(MoleculeGraph mol) {
+			n= mol.atomcount();
+			pairorders= new byte[n*n];
+			degrees= new int[n];
+			boolean limits= false;
+			for(int i=0;i<n;i++) {
+				Integer degree= Constraints.this.degrees.get(mol.symbol(i));
+				degrees[i]= degree==null ? Integer.MAX_VALUE : degree;
+				limits|= degree!=null;
+				for(int j=0;j<n;j++) {
+					Integer order= Constraints.this.pairorders.get(pair(mol.symbol(i),mol.symbol(j)));
+					pairorders[i*n+j]= (byte)Math.min(maxorder,order==null ? MoleculeGraph.MAXORDER : order);
+				}
+			}
+			degreelimits= limits;
+		}
+
+		/**
+		 * True if a bond unit can be added between the atoms.
+		 */
+		boolean allows(MoleculeGraph mol, int i, int j) {
+			int order= mol.order(i,j);
+			if(order>=pairorders[i*n+j]) return false;
+			if(order==0) {
+				if(degreelimits && (mol.degree(i)>=degrees[i] || mol.degree(j)>=degrees[j])) return false;
+				if(mol.component(i)==mol.component(j) && mol.rings()>=maxrings) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * True if a bad fragment is on the bonds which can not change anymore.
+		 */
+		boolean prunable(MoleculeGraph mol) {
+			for(Fragment fragment: bad) {
+				if(fragment.in(mol,true)) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * True if the complete structure meets the constraints.
+		 */
+		boolean accepts(MoleculeGraph mol) {
+			int rings= mol.rings();
+			if(rings<minrings || rings>maxrings) return false;
+			for(Fragment fragment: bad) {
+				if(fragment.in(mol,false)) return false;
+			}
+			for(Fragment fragment: good) {
+				if(!fragment.in(mol,false)) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The atoms and the bonds of a fragment, other than the hydrogens. The graphs have no
+	 * hydrogen atoms, so the explicit hydrogens of the SMILES are removed; a fragment with a
+	 * hydrogen which can not be removed, like [H][H], is rejected.
+	 */
+	private static final class Fragment {
+		private final String smiles;
+		private final String[] symbols;
+		private final int[][] orders;
+
+		Fragment(String smiles) {
+			this.smiles= smiles;
+			IAtomContainer mol;
+			try {
+				mol= new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles(smiles);
+			}catch(InvalidSmilesException e) {
+				throw new IllegalArgumentException("Not a fragment: "+smiles);
+			}
+			mol= AtomContainerManipulator.suppressHydrogens(mol);
+			int n= mol.getAtomCount();
+			symbols= new String[n];
+			orders= new int[n][n];
+			for(int i=0;i<n;i++) {
+				symbols[i]= mol.getAtom(i).getSymbol();
+				if(symbols[i].equals("H")) {
+					throw new IllegalArgumentException("Not a fragment without hydrogens: "+smiles);
+				}
+			}
+			for(IBond bond: mol.bonds()) {
+				int u= mol.indexOf(bond.getAtom(0));
+				int v= mol.indexOf(bond.getAtom(1));
+				orders[u][v]= orders[v][u]= bond.getOrder().numeric();
+			}
+		}
+
+		/**
+		 * True if the fragment is in the graph. If fixed, the bonds of the fragment should also
+		 * have a saturated atom.
+		 */
+		boolean in(MoleculeGraph mol, boolean fixed) {
+			return match(mol,fixed,new int[symbols.length],new boolean[mol.atomcount()],0);
+		}
+
+		private boolean match(MoleculeGraph mol, boolean fixed, int[] map, boolean[] used, int k) {
+			if(k==symbols.length) return true;
+			for(int u=0;u<mol.atomcount();u++) {
+				if(used[u] || !mol.symbol(u).equals(symbols[k])) continue;
+				boolean bonded= true;
+				for(int l=0;l<k && bonded;l++) {
+					int order= orders[k][l];
+					if(order==0) continue;
+					int v= map[l];
+					bonded= mol.order(u,v)==order && (!fixed || !mol.satcheck(u) || !mol.satcheck(v));
+				}
+				if(!bonded) continue;
+				map[k]= u;
+				used[u]= true;
+				if(match(mol,fixed,map,used,k+1)) return true;
+				used[u]= false;
+			}
+			return false;
+		}
+	}
+}
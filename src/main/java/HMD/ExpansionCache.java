@@ -0,0 +1,162 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The cache of the expanded extensions of the generators. In genall, the same
+ * structure is reached through many orders of the same bonds, and each time its
+ * extensions from an index are built again, although they are the same as before.
+ * An extension of a stage is recorded here when it is first pushed for that stage;
+ * when the same structure is reached again for the stage, its extensions are not
+ * built again. The saturated structures are recorded with the stage -1, so the same
+ * structure is passed to the duplicate check only once.
+ *
+ * The structures are identified by their two 64 bit Zobrist keys. The extensions
+ * depend on the atom indices, so the keys are of the atom-labelled structures, not
+ * canonical ones: two isomorphic structures with differently numbered atoms are
+ * extended separately. The cache keeps the recently used entries up to the size,
+ * the oldest entries are evicted; an evicted structure is only extended again. With
+ * the size 0, the cache is disabled.
+ *
+ * The workers of the parallel generator visit the cache together, so the entries are
+ * split into stripes selected by the high bits of the key, each with its own lock and
+ * its own least recently used order. Small caches have a single stripe, so they evict
+ * exactly the least recently used entry.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExpansionCache {
+	public static final int SIZE= 1<<18;
+	public static final int STRIPES= 64;
+	private static final int STRIPE= 1<<10;
+
+	private final int size;
+	private final Stripe[] stripes;
+	private final LongAdder hits= new LongAdder();
+	private final LongAdder misses= new LongAdder();
+	private final LongAdder evictions= new LongAdder();
+
+	public ExpansionCache() {
+		this(SIZE);
+	}
+
+	public ExpansionCache(int size) {
+		this.size= size;
+		int count= 1;
+		while(count<STRIPES && (long)count*2*STRIPE<=size) count*=2;
+		this.stripes= new Stripe[count];
+		for(int i=0;i<count;i++) stripes[i]= new Stripe(size/count);
+	}
+
+	/**
+	 * Records the structure for the stage and returns true if it was not recorded before.
+	 */
+	public boolean visit(MoleculeGraph mol, int stage) {
+		if(size==0) return true;
+		Entry entry= new Entry(mol.key(),mol.check(),stage);
+		Stripe stripe= stripes[(int)(entry.hash>>>58)&(stripes.length-1)];
+		synchronized(stripe) {
+			if(stripe.get(entry)!=null) {
+				hits.increment();
+				return false;
+			}
+			stripe.put(entry,entry);
+		}
+		misses.increment();
+		return true;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	public int size() {
+		int count= 0;
+		for(Stripe stripe: stripes) {
+			synchronized(stripe) {
+				count+= stripe.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A part of the entries with its own lock and least recently used order.
+	 */
+	private final class Stripe extends LinkedHashMap<Entry,Entry> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Stripe(int capacity){
+			super(16,0.75f,true);
+			this.capacity= capacity;
+		}
+
+		protected boolean removeEldestEntry(Map.Entry<Entry,Entry> eldest) {
+			if(size()>capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static final class Entry {
+		final long key;
+		final long check;
+		final int stage;
+		final long hash;
+
+		Entry(long key, long check, int stage){
+			this.key= key;
+			this.check= check;
+			this.stage= stage;
+			this.hash= (key^stage)*0x9E3779B97F4A7C15L;
+		}
+
+		public boolean equals(Object other) {
+			Entry entry= (Entry) other;
+			return key==entry.key && check==entry.check && stage==entry.stage;
+		}
+
+		public int hashCode() {
+			return (int)(hash^(hash>>>32));
+		}
+	}
+}
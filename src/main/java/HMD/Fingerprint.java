@@ -0,0 +1,108 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The fingerprint of a run: the number of the structures with the sums of the two halves
+ * of their canonical hashes, modulo 2^64. The sums do not depend on the order of the
+ * structures, so the runs with the same structures have the same fingerprint, with any
+ * number of threads; two runs can be compared by their fingerprints instead of their
+ * output files. The fingerprint is written as the count and 32 hex digits:
+ *
+ *   37:6b1f0c...
+ *
+ * The hashes are the ones of the connectivity, the keys of the duplicate check, so the
+ * fingerprint is the same in the runs where the duplicate check keeps another structure
+ * with the same connectivity.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class Fingerprint {
+	private final LongAdder count= new LongAdder();
+	private final LongAdder high= new LongAdder();
+	private final LongAdder low= new LongAdder();
+
+	public void add(long[] hash) {
+		count.increment();
+		high.add(hash[0]);
+		low.add(hash[1]);
+	}
+
+	public void add(MoleculeGraph mol) {
+		add(mol.hash());
+	}
+
+	public void add(IAtomContainer mol) {
+		add(CanonicalHash.hash(mol));
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * The graph sink adding the structures to the fingerprint before passing them to the sink.
+	 */
+	public GraphSink graphs(final GraphSink sink) {
+		return new GraphSink() {
+			public void write(MoleculeGraph mol) throws CDKException, IOException {
+				add(mol);
+				sink.write(mol);
+			}
+		};
+	}
+
+	/**
+	 * The structure sink adding the structures to the fingerprint before passing them to the sink.
+	 */
+	public StructureSink sink(final StructureSink sink) {
+		return new StructureSink() {
+			public void write(IAtomContainer mol) throws CDKException, IOException {
+				add(mol);
+				sink.write(mol);
+			}
+
+			public void flush() throws IOException {
+				sink.flush();
+			}
+
+			public void close() throws IOException {
+				sink.close();
+			}
+		};
+	}
+
+	public String toString() {
+		return count.sum()+":"+String.format("%016x%016x",high.sum(),low.sum());
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The molecular formula input, like C6H14. The hydrogens of the formula are distributed
+ * to the other atoms in all the possible ways and each distribution is a molecular
+ * information for the generator, like C3C3C2C2C1C1.
+ *
+ * The atoms of the same element are equivalent, so the numbers of hydrogens of an
+ * element are enumerated in descending order; each distribution is enumerated once. The
+ * numbers of hydrogens are limited by the valences of the Generator. A distribution is
+ * only kept if a connected structure with all the atoms saturated can be built from it:
+ * the open sites of the atoms should pair up to bonds, there should be enough bonds to
+ * connect the atoms and no atom can have more open sites than all the others together.
+ * The generation of a formula only writes the structures with all their atoms saturated,
+ * see StreamingGenerator.complete.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class Formula {
+	private static final Pattern ELEMENT= Pattern.compile("([A-Z][a-z]?)([0-9]*)");
+
+	private final String[] symbols;
+	private final int[] counts;
+	private final int[] valences;
+	private final int hydrogens;
+	private final int atoms;
+
+	/**
+	 * The formula like C6H14 or C2H7NO, with the default valences. The same element can be
+	 * given more than once; the elements are kept in their order in the formula.
+	 */
+	public Formula(String formula) {
+		this(formula,AtomTypes.DEFAULT);
+	}
+
+	/**
+	 * The formula with the valences of the given atom types.
+	 */
+	public Formula(String formula, AtomTypes types) {
+		Map<String,Integer> elements= new LinkedHashMap<String,Integer>();
+		Matcher matcher= ELEMENT.matcher(formula);
+		int end= 0;
+		while(matcher.find() && matcher.start()==end) {
+			int count= matcher.group(2).isEmpty() ? 1 : Integer.parseInt(matcher.group(2));
+			Integer previous= elements.get(matcher.group(1));
+			elements.put(matcher.group(1),previous==null ? count : previous+count);
+			end= matcher.end();
+		}
+		if(end!=formula.length() || formula.isEmpty()) {
+			throw new IllegalArgumentException("Not a molecular formula: "+formula);
+		}
+		Integer h= elements.remove("H");
+		this.hydrogens= h==null ? 0 : h;
+		this.symbols= elements.keySet().toArray(new String[0]);
+		this.counts= new int[symbols.length];
+		this.valences= new int[symbols.length];
+		int atoms= 0;
+		for(int e=0;e<symbols.length;e++) {
+			int valence= types.valence(symbols[e]);
+			if(valence==0) {
+				throw new IllegalArgumentException("No valence for the element "+symbols[e]);
+			}
+			counts[e]= elements.get(symbols[e]);
+			valences[e]= valence;
+			atoms+= counts[e];
+		}
+		if(atoms==0) {
+			throw new IllegalArgumentException("No atoms other than hydrogens: "+formula);
+		}
+		this.atoms= atoms;
+	}
+
+	/**
+	 * The molecular informations of the hydrogen distributions.
+	 */
+	public List<String> distributions() {
+		List<String> distributions= new ArrayList<String>();
+		distribute(0,0,hydrogens,Integer.MAX_VALUE,new int[atoms],0,distributions);
+		return distributions;
+	}
+
+	public static List<String> distributions(String formula) {
+		return new Formula(formula).distributions();
+	}
+
+	/**
+	 * Assigns the hydrogens of the atom at the position, the next atom of the element e. The
+	 * hydrogens of an element are not increasing, at most the given maximum.
+	 */
+	private void distribute(int e, int position, int left, int max, int[] h, int first, List<String> distributions) {
+		if(position==atoms) {
+			if(left==0 && feasible(h)) distributions.add(molinfo(h));
+			return;
+		}
+		if(position-first==counts[e]) {
+			distribute(e+1,position,left,Integer.MAX_VALUE,h,position,distributions);
+			return;
+		}
+		//An atom needs an open site for its bond, unless it is the only atom.
+		int limit= Math.min(max,Math.min(left,atoms==1 ? valences[e] : valences[e]-1));
+		for(int i=limit;i>=0;i--) {
+			h[position]= i;
+			distribute(e,position+1,left-i,i,h,first,distributions);
+		}
+	}
+
+	/**
+	 * Whether the open sites of the atoms can be saturated by the bonds of a connected graph.
+	 */
+	private boolean feasible(int[] h) {
+		int sum= 0;
+		int max= 0;
+		int position= 0;
+		for(int e=0;e<symbols.length;e++) {
+			for(int i=0;i<counts[e];i++) {
+				int open= valences[e]-h[position++];
+				sum+= open;
+				max= Math.max(max,open);
+			}
+		}
+		return sum%2==0 && sum>=2*(atoms-1) && max<=sum-max;
+	}
+
+	private String molinfo(int[] h) {
+		StringBuilder molinfo= new StringBuilder();
+		int position= 0;
+		for(int e=0;e<symbols.length;e++) {
+			for(int i=0;i<counts[e];i++) {
+				molinfo.append(symbols[e]);
+				if(h[position]>0) molinfo.append(h[position]);
+				position++;
+			}
+		}
+		return molinfo.toString();
+	}
+}
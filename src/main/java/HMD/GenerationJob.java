@@ -0,0 +1,339 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * One generation run: the input, the output directory and the options of the
+ * command line, kept in the job instead of the static fields of the Generator, so
+ * several jobs can run in the same process at the same time. The defaults are the
+ * ones of the command line.
+ *
+ * The structures are written to [filedir][name].sdf, output.sdf by default, or to
+ * the .smi or .hmd file of the SMILES or the binary format. If the
+ * input is a molecular formula, the structures of all its hydrogen distributions are
+ * generated in the same job.
+ *
+ * In the count only mode, the structures are counted without building their atom
+ * containers and nothing is written. In the sample mode, only a uniform random sample
+ * of the structures is written, see Reservoir.
+ *
+ * With a memory budget in MB, the canonical hashes of the duplicate check are spilled
+ * to the disk beyond the budget, see SpillingDeduplicator.
+ *
+ * In the sorted mode, the structures are written in the order of their canonical hashes,
+ * see SortingSink, so the output files of the runs can be compared. The fingerprint of
+ * the run, see Fingerprint, is printed and added to the metrics if requested.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.Map;
+
+import javax.management.JMException;
+
+import org.openscience.cdk.exception.CDKException;
+
+public class GenerationJob {
+	public final String molinfo;
+	public final String filedir;
+	public String name= "output";
+	public boolean verbose= false;
+	public int threads= 1;
+	public boolean gzip= false;
+	public String dedup= "canon";
+	public int progress= 0;
+	public String json= null;
+	public int checkpoint= 0;
+	public boolean resume= false;
+	public Shard shard= null;
+	public boolean pruning= true;
+	public boolean orderly= false;
+	public int cache= ExpansionCache.SIZE;
+	public boolean formula= false;
+	public boolean countonly= false;
+	public int sample= 0;
+	public long seed= 0;
+	public Constraints constraints= null;
+	public String format= "sdf";
+	public int memory= 0;
+	public AtomTypes types= AtomTypes.DEFAULT;
+	public boolean sorted= false;
+	public boolean fingerprint= false;
+
+	private Metrics runmetrics;
+	private Fingerprint print;
+
+	public GenerationJob(String molinfo, String filedir) {
+		this.molinfo= molinfo;
+		this.filedir= filedir;
+	}
+
+	/**
+	 * The metrics of the last run of the job.
+	 */
+	public Metrics metrics() {
+		return runmetrics;
+	}
+
+	/**
+	 * Generates the structures with a session of the options and returns their number.
+	 */
+	public long run() throws CloneNotSupportedException, CDKException, IOException {
+		if((checkpoint>0 || resume) && (threads>1 || gzip)) {
+			throw new IllegalArgumentException("The checkpoints are only supported for the sequential generation without gzip");
+		}
+		if((checkpoint>0 || resume) && (countonly || sample>0)) {
+			throw new IllegalArgumentException("The checkpoints are not supported for the count only and the sample modes");
+		}
+		if((checkpoint>0 || resume) && (sorted || fingerprint)) {
+			throw new IllegalArgumentException("The checkpoints are not supported for the sorted output and the fingerprints");
+		}
+		if(shard!=null && !format.equals("sdf")) {
+			throw new IllegalArgumentException("The shards are only supported for the sdf output, the format read by the ShardMerger");
+		}
+		if((checkpoint>0 || resume || shard!=null) && formula) {
+			throw new IllegalArgumentException("The checkpoints and the shards are not supported for the formula input");
+		}
+		if((checkpoint>0 || resume || shard!=null) && orderly) {
+			throw new IllegalArgumentException("The checkpoints and the shards are not supported for the orderly generation");
+		}
+		print= fingerprint ? new Fingerprint() : null;
+		//Each shard has its own output and checkpoint files.
+		String file= shard==null ? name : name+"."+shard.shard()+"of"+shard.shards();
+		String output= filedir+file+"."+extension(format)+(gzip ? ".gz" : "");
+		if(verbose) {
+			if(formula) {
+				System.out.println("Start generating the structures of "+new Formula(molinfo,types).distributions().size()+" hydrogen distributions ...");
+			}else if(orderly) {
+				System.out.println("Start generating the saturated structures in the orderly mode ...");
+			}else {
+				System.out.println("Start generating structures ...");
+			}
+		}
+		//The orderly generation has no duplicate check.
+		Deduplicator unique= orderly ? null : deduplicator();
+		GraphSink graphs= graphs();
+		Checkpoint state= new Checkpoint(new File(filedir+file+".checkpoint"),new File(output),identity(),checkpoint);
+		boolean resumed= resume && state.exists();
+		StructureSink outFile;
+		if(resumed) {
+			long offset= state.offset();
+			if(verbose) System.out.println("Resuming from the checkpoint with "+offset+" bytes of "+output+".");
+			outFile= format.equals("smi") ? new SmilesSink(output,offset) : format.equals("bin") ? new BinarySink(output,offset) : new AsyncSDFSink(output,offset);
+		}else {
+			outFile= sink(output);
+		}
+		GeneratorSession session;
+		long count;
+		try {
+			GeneratorSession.Builder builder= GeneratorSession.builder(molinfo)
+					.formula(formula)
+					.types(types)
+					.constraints(constraints)
+					.threads(threads)
+					.deduplicator(unique)
+					.orderly(orderly)
+					.pruning(pruning)
+					.cache(cache)
+					.shard(shard)
+					.checkpoint(checkpoint>0 ? state : null)
+					.resume(resumed ? state : null);
+			session= graphs!=null ? builder.graphs(printed(graphs)).build() : builder.sink(printed(outFile)).build();
+			runmetrics= session.metrics();
+			monitor();
+			try {
+				count= session.generate();
+				if(!formula && !orderly) state.delete();
+				output(graphs,outFile);
+				count= written(graphs,count);
+			}finally {
+				runmetrics.finish();
+				unmonitor();
+			}
+		}finally {
+			close(outFile);
+			close(graphs);
+			close(unique);
+		}
+		report();
+		if(verbose) {
+			if(formula) {
+				for(Map.Entry<String,Long> distribution: session.counts().entrySet()) {
+					System.out.println(distribution.getKey()+": "+distribution.getValue());
+				}
+			}
+			System.out.println("Number of generated structures:"+" "+count);
+			System.out.println("Duration:"+" "+new DecimalFormat(".###").format(runmetrics.getElapsedSeconds())); //Format is second
+			System.out.println(runmetrics.getProgress());
+			if(unique instanceof CanonicalDeduplicator && dedup.equals("verify")) {
+				System.out.println("Hash and InChI mismatches:"+" "+((CanonicalDeduplicator) unique).mismatches());
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The graph sink of the count only and the sample modes, null otherwise.
+	 */
+	private GraphSink graphs() {
+		if(countonly) return GraphSink.NONE;
+		if(sample>0) return new Reservoir(sample,seed);
+		return sorted ? new SortingSink(new File(filedir),!orderly) : null;
+	}
+
+	/**
+	 * The sink adding the structures to the fingerprint of the run, if requested.
+	 */
+	private GraphSink printed(GraphSink graphs) {
+		return print==null || graphs instanceof SortingSink ? graphs : print.graphs(graphs);
+	}
+
+	private StructureSink printed(StructureSink outFile) {
+		return print==null ? outFile : print.sink(outFile);
+	}
+
+	/**
+	 * The output file, none in the count only mode. The sdf files are written by a separate
+	 * thread so that the generation does not wait for the disk.
+	 */
+	private StructureSink sink(String output) throws IOException {
+		if(countonly) return null;
+		if(format.equals("smi")) return new SmilesSink(output,gzip);
+		if(format.equals("bin")) return new BinarySink(output,gzip);
+		return new AsyncSDFSink(output,gzip);
+	}
+
+	/**
+	 * The file extension of the output format: sdf, smi (canonical SMILES) or bin (hmd).
+	 */
+	static String extension(String format) {
+		if(format.equals("sdf") || format.equals("smi")) return format;
+		if(format.equals("bin")) return "hmd";
+		throw new IllegalArgumentException("Unknown output format: "+format);
+	}
+
+	/**
+	 * Writes the sample to the output file in the sample mode.
+	 */
+	private void output(GraphSink graphs, StructureSink outFile) throws CDKException, IOException {
+		if(graphs instanceof Reservoir) {
+			int written= ((Reservoir) graphs).output(outFile);
+			if(verbose) System.out.println("Number of sampled structures:"+" "+written);
+		}else if(graphs instanceof SortingSink) {
+			//The fingerprint of the sorted output is the one of the written structures.
+			((SortingSink) graphs).output(printed(outFile));
+		}
+	}
+
+	/**
+	 * The options of the job a checkpoint is only resumed with: the ones changing the structures
+	 * written to the output file or its format.
+	 */
+	String identity() {
+		return molinfo+" "+dedup+" "+format
+				+(shard==null ? "" : " "+shard)
+				+(types==AtomTypes.DEFAULT ? "" : " "+types)
+				+(constraints==null ? "" : " "+constraints)
+				+(pruning ? "" : " nopruning");
+	}
+
+	/**
+	 * The number of the structures of the job: the sorted ones in the sorted mode, otherwise
+	 * the count of the generator.
+	 */
+	private static long written(GraphSink graphs, long count) {
+		return graphs instanceof SortingSink ? ((SortingSink) graphs).written() : count;
+	}
+
+	private static void close(StructureSink outFile) throws IOException {
+		if(outFile!=null) outFile.close();
+	}
+
+	/**
+	 * The duplicate check of the job; the canonical hashes are spilled to the output directory
+	 * if a memory budget is given.
+	 */
+	private Deduplicator deduplicator() throws IOException {
+		//In the sorted mode, the sink chooses the structure of each connectivity.
+		boolean orders= sorted && !orderly && !countonly && sample==0;
+		if(orders && !dedup.equals("canon")) {
+			throw new IllegalArgumentException("The sorted output is only supported with the canonical hashes");
+		}
+		if(memory>0 && dedup.equals("canon")) {
+			return new SpillingDeduplicator(memory*(1L<<20),new File(filedir),orders);
+		}
+		return orders ? new CanonicalDeduplicator(false,true) : Generator.deduplicator(dedup);
+	}
+
+	private static void close(Deduplicator unique) throws IOException {
+		if(unique instanceof Closeable) ((Closeable) unique).close();
+	}
+
+	private static void close(GraphSink graphs) throws IOException {
+		if(graphs instanceof Closeable) ((Closeable) graphs).close();
+	}
+
+	/**
+	 * Prints the fingerprint and writes the metrics to the JSON file if requested.
+	 */
+	private void report() throws IOException {
+		if(print!=null) System.out.println("Fingerprint:"+" "+print);
+		if(json!=null) {
+			try(Writer out= new OutputStreamWriter(new FileOutputStream(json),StandardCharsets.UTF_8)) {
+				out.write(runmetrics.toJson());
+			}
+		}
+	}
+
+	/**
+	 * The metrics of the run are registered to JMX and printed periodically if requested.
+	 */
+	private void monitor() {
+		if(print!=null) runmetrics.fingerprint(print);
+		if(progress>0) runmetrics.report(progress,System.out);
+		try {
+			runmetrics.register(name.equals("output") ? molinfo : name);
+		}catch(JMException e) {
+			if(verbose) System.out.println("The metrics are not registered to JMX: "+e.getMessage());
+		}
+	}
+
+	private void unmonitor() {
+		try {
+			runmetrics.unregister();
+		}catch(JMException e) {
+			if(verbose) System.out.println("The metrics are not unregistered from JMX: "+e.getMessage());
+		}
+	}
+}
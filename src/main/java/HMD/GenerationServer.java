@@ -0,0 +1,458 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * A local HTTP server generating structures, so that the tools querying many inputs do not
+ * start a new JVM for each of them. The jobs run on a fixed number of threads with a bounded
+ * queue; a job waiting in a full queue is rejected with 503. The requests are:
+ *
+ *   GET /generate?input=C3C3CC2CC      generates the structures of the input, streamed as
+ *                                      canonical SMILES while they are generated, one per line
+ *   GET /jobs                          the queued and the running jobs as JSON
+ *   DELETE /jobs/[id]                  cancels the job
+ *
+ * The parameters of generate are input, formula (true if the input is a formula), orderly,
+ * constraints, valences, threads (at most the threads of the server), timeout (in seconds,
+ * at most the one of the server) and format: smi (default) or count, for the number of
+ * structures without the structures. The id of the job is sent in the X-HMD-Job header
+ * before the structures, and the last line of the response is the state of the job, the
+ * number of its structures and its duration:
+ *
+ *   # finished 37 0.512
+ *
+ * The state is finished, cancelled, timeout or failed with its cause. The server is started
+ * from the command line:
+ *
+ * java -cp HMD.jar HMD.GenerationServer -p 8035 -j 2 -q 16
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class GenerationServer implements Closeable {
+	public static final int PORT= 8035;
+	//The response is flushed at least once a second while structures are written.
+	private static final long FLUSHNANOS= 1000000000L;
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor executor;
+	private final ScheduledExecutorService timer;
+	private final ExecutorService handlers;
+	private final Map<Long,Job> jobs= new ConcurrentSkipListMap<Long,Job>();
+	private final AtomicLong ids= new AtomicLong();
+	private final int threads;
+	private final long timeout;
+
+	/**
+	 * The server on the address running the given number of jobs at the same time, with the
+	 * given number of jobs waiting. A job runs with at most the given threads and seconds.
+	 */
+	public GenerationServer(InetSocketAddress address, int jobs, int queue, int threads, long timeout) throws IOException {
+		if(jobs<1 || queue<0 || threads<1 || timeout<1) {
+			throw new IllegalArgumentException("Invalid limits of the server");
+		}
+		this.threads= threads;
+		this.timeout= timeout;
+		BlockingQueue<Runnable> waiting= queue>0 ? new ArrayBlockingQueue<Runnable>(queue) : new SynchronousQueue<Runnable>();
+		this.executor= new ThreadPoolExecutor(jobs,jobs,0,TimeUnit.SECONDS,waiting,daemons("HMD-job"));
+		this.timer= Executors.newSingleThreadScheduledExecutor(daemons("HMD-timeout"));
+		this.handlers= Executors.newFixedThreadPool(2,daemons("HMD-http"));
+		this.server= HttpServer.create(address,0);
+		server.setExecutor(handlers);
+		server.createContext("/generate",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				generate(exchange);
+			}
+		});
+		server.createContext("/jobs",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				jobs(exchange);
+			}
+		});
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * The port of the server, the bound one if the server was created with port 0.
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the server and cancels the jobs.
+	 */
+	public void close() {
+		server.stop(0);
+		for(Job job: jobs.values()) {
+			job.cancel("cancelled");
+		}
+		executor.shutdownNow();
+		timer.shutdownNow();
+		handlers.shutdownNow();
+	}
+
+	private static ThreadFactory daemons(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread= new Thread(r,name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Starts the streaming response of a new job, or rejects the request.
+	 */
+	private void generate(HttpExchange exchange) throws IOException {
+		if(!exchange.getRequestMethod().equals("GET")) {
+			respond(exchange,405,"Only GET is supported\n");
+			return;
+		}
+		Job job;
+		try {
+			job= new Job(ids.incrementAndGet(),parameters(exchange.getRequestURI().getRawQuery()),exchange);
+		}catch(IllegalArgumentException e) {
+			respond(exchange,400,e.getMessage()+"\n");
+			return;
+		}
+		jobs.put(job.id,job);
+		try {
+			job.future= executor.submit(job);
+		}catch(RejectedExecutionException e) {
+			jobs.remove(job.id);
+			respond(exchange,503,"The queue of the jobs is full\n");
+			return;
+		}
+		try {
+			exchange.getResponseHeaders().set("Content-Type","text/plain; charset=utf-8");
+			exchange.getResponseHeaders().set("X-HMD-Job",String.valueOf(job.id));
+			exchange.sendResponseHeaders(200,0);
+		}catch(IOException e) {
+			job.cancel("cancelled");
+			throw e;
+		}finally {
+			job.accepted();
+		}
+	}
+
+	/**
+	 * Lists the jobs, or cancels the job of the path.
+	 */
+	private void jobs(HttpExchange exchange) throws IOException {
+		String path= exchange.getRequestURI().getPath();
+		String method= exchange.getRequestMethod();
+		if(method.equals("GET") && path.matches("/jobs/?")) {
+			StringBuilder json= new StringBuilder("[");
+			for(Job job: jobs.values()) {
+				if(json.length()>1) json.append(',');
+				json.append(job.toJson());
+			}
+			exchange.getResponseHeaders().set("Content-Type","application/json");
+			respond(exchange,200,json.append("]\n").toString());
+		}else if(method.equals("DELETE") && path.matches("/jobs/[0-9]+")) {
+			Job job= jobs.get(Long.parseLong(path.substring(6)));
+			if(job==null) {
+				respond(exchange,404,"No such job\n");
+			}else {
+				job.cancel("cancelled");
+				respond(exchange,200,"cancelled "+job.id+"\n");
+			}
+		}else {
+			respond(exchange,404,"Unknown request\n");
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes= body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status,bytes.length);
+		try(OutputStream out= exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * The parameters of the query.
+	 */
+	static Map<String,String> parameters(String query) {
+		Map<String,String> parameters= new HashMap<String,String>();
+		if(query==null) return parameters;
+		try {
+			for(String parameter: query.split("&")) {
+				if(parameter.isEmpty()) continue;
+				int split= parameter.indexOf('=');
+				String key= URLDecoder.decode(split<0 ? parameter : parameter.substring(0,split),"UTF-8");
+				parameters.put(key,split<0 ? "" : URLDecoder.decode(parameter.substring(split+1),"UTF-8"));
+			}
+		}catch(UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		return parameters;
+	}
+
+	/**
+	 * A generation request. The session is built from the parameters when the request is
+	 * accepted, so the invalid parameters are rejected before the job is queued.
+	 */
+	private final class Job implements Runnable, StructureSink, GraphSink {
+		final long id;
+		final String input;
+		final boolean count;
+		final long seconds;
+		final HttpExchange exchange;
+		final GeneratorSession session;
+		final AtomicLong written= new AtomicLong();
+		volatile Future<?> future;
+		private volatile String state= "queued";
+		private volatile long start= 0;
+		private volatile ScheduledFuture<?> deadline;
+		private SmilesSink smiles;
+		private long flushed= System.nanoTime();
+		private boolean closed= false;
+		private boolean ready= false;
+
+		Job(long id, Map<String,String> parameters, HttpExchange exchange) {
+			this.id= id;
+			this.exchange= exchange;
+			this.input= parameters.get("input");
+			if(input==null || input.isEmpty()) {
+				throw new IllegalArgumentException("No input");
+			}
+			String format= parameters.containsKey("format") ? parameters.get("format") : "smi";
+			if(!format.equals("smi") && !format.equals("count")) {
+				throw new IllegalArgumentException("Unknown format: "+format);
+			}
+			this.count= format.equals("count");
+			int threads= parameters.containsKey("threads") ? integer(parameters.get("threads")) : 1;
+			if(threads<1 || threads>GenerationServer.this.threads) {
+				throw new IllegalArgumentException("The threads of a job are 1 to "+GenerationServer.this.threads);
+			}
+			this.seconds= parameters.containsKey("timeout") ? Math.min(timeout,integer(parameters.get("timeout"))) : timeout;
+			if(seconds<1) {
+				throw new IllegalArgumentException("Invalid timeout: "+parameters.get("timeout"));
+			}
+			boolean formula= "true".equals(parameters.get("formula"));
+			AtomTypes types= parameters.containsKey("valences") ? AtomTypes.parse(parameters.get("valences")) : AtomTypes.DEFAULT;
+			if(formula) {
+				new Formula(input,types);
+			}else {
+				Generator.build(input,types);
+			}
+			GeneratorSession.Builder builder= GeneratorSession.builder(input)
+					.formula(formula)
+					.types(types)
+					.orderly("true".equals(parameters.get("orderly")))
+					.threads(threads);
+			if(parameters.containsKey("constraints")) builder.constraints(Constraints.parse(parameters.get("constraints")));
+			this.session= count ? builder.graphs(this).build() : builder.sink(this).build();
+		}
+
+		private int integer(String value) {
+			try {
+				return Integer.parseInt(value);
+			}catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number: "+value);
+			}
+		}
+
+		/**
+		 * The response headers are sent; the structures can be written.
+		 */
+		synchronized void accepted() {
+			ready= true;
+			notifyAll();
+		}
+
+		public void run() {
+			synchronized(this) {
+				while(!ready) {
+					try {
+						wait();
+					}catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if(closed) return;
+				if(!state.equals("queued")) {
+					finish(state);
+					return;
+				}
+				state= "running";
+				start= System.nanoTime();
+				smiles= count ? null : new SmilesSink(exchange.getResponseBody());
+			}
+			deadline= timer.schedule(new Runnable() {
+				public void run() {
+					cancel("timeout");
+				}
+			},seconds,TimeUnit.SECONDS);
+			String end;
+			try {
+				session.generate();
+				end= "finished";
+			}catch(CancellationException e) {
+				end= state;
+			}catch(CloneNotSupportedException | CDKException | IOException | RuntimeException e) {
+				end= "failed: "+e.getMessage();
+			}finally {
+				deadline.cancel(false);
+			}
+			finish(end);
+		}
+
+		/**
+		 * Cancels the job: a queued job is finished, a running one is stopped by its session.
+		 */
+		void cancel(String reason) {
+			synchronized(this) {
+				if(closed || !state.equals("queued") && !state.equals("running")) return;
+				state= reason;
+			}
+			session.cancel();
+			if(future!=null && future.cancel(false)) finish(reason);
+		}
+
+		/**
+		 * Writes the last line and closes the response.
+		 */
+		private synchronized void finish(String end) {
+			if(closed) return;
+			closed= true;
+			jobs.remove(id);
+			try {
+				if(smiles!=null) smiles.flush();
+				String duration= new DecimalFormat("0.###").format(start==0 ? 0 : (System.nanoTime()-start)/1e9);
+				OutputStream out= exchange.getResponseBody();
+				out.write(("# "+end.replace('\n',' ')+" "+written.get()+" "+duration+"\n").getBytes(StandardCharsets.UTF_8));
+				out.close();
+			}catch(IOException e) {
+				//The client is gone.
+			}finally {
+				exchange.close();
+			}
+		}
+
+		public void write(IAtomContainer mol) throws CDKException, IOException {
+			smiles.write(mol);
+			written.incrementAndGet();
+			long now= System.nanoTime();
+			if(now-flushed>FLUSHNANOS) {
+				smiles.flush();
+				flushed= now;
+			}
+		}
+
+		public void write(MoleculeGraph mol) {
+			written.incrementAndGet();
+		}
+
+		public void close() {
+		}
+
+		String toJson() {
+			double elapsed= start==0 ? 0 : (System.nanoTime()-start)/1e9;
+			return "{\"id\":"+id+",\"input\":\""+input.replace("\\","\\\\").replace("\"","\\\"")+"\",\"state\":\""+state
+					+"\",\"written\":"+written.get()+",\"elapsedSeconds\":"+String.format(Locale.ROOT,"%.3f",elapsed)+"}";
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Options options = new Options();
+		options.addOption(Option.builder("p").hasArg().longOpt("port").desc("Port of the server (default "+PORT+")").build());
+		options.addOption(Option.builder("b").hasArg().longOpt("bind").desc("Address of the server (default 127.0.0.1)").build());
+		options.addOption(Option.builder("j").hasArg().longOpt("jobs").desc("Number of the jobs running at the same time (default 2)").build());
+		options.addOption(Option.builder("q").hasArg().longOpt("queue").desc("Number of the jobs waiting to run (default 16)").build());
+		options.addOption(Option.builder("t").hasArg().longOpt("threads").desc("Highest number of threads of a job (default 1)").build());
+		options.addOption(Option.builder("s").hasArg().longOpt("timeout").desc("Highest duration of a job in seconds (default 600)").build());
+		CommandLine cmd;
+		try {
+			cmd = new DefaultParser().parse(options, args);
+		}catch(ParseException e) {
+			new HelpFormatter().printHelp("java -cp HMD.jar HMD.GenerationServer",
+					"\nGenerates structures for the HTTP requests of the local tools.\n\n",options,"");
+			return;
+		}
+		final GenerationServer server= new GenerationServer(
+				new InetSocketAddress(cmd.getOptionValue("bind","127.0.0.1"),Integer.parseInt(cmd.getOptionValue("port",String.valueOf(PORT)))),
+				Integer.parseInt(cmd.getOptionValue("jobs","2")),
+				Integer.parseInt(cmd.getOptionValue("queue","16")),
+				Integer.parseInt(cmd.getOptionValue("threads","1")),
+				Long.parseLong(cmd.getOptionValue("timeout","600")));
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				server.close();
+			}
+		});
+		server.start();
+		System.out.println("HMD server listening on http://"+cmd.getOptionValue("bind","127.0.0.1")+":"+server.port()+"/generate?input=");
+		Thread.currentThread().join();
+	}
+}
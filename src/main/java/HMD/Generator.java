@@ -38,8 +38,11 @@
 
 package HMD;
 
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -47,13 +50,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.text.DecimalFormat;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.openscience.cdk.silent.Atom;
@@ -63,6 +66,7 @@ import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.graph.GraphUtil;
 import org.openscience.cdk.graph.invariant.Canon;
 import org.openscience.cdk.inchi.InChIGeneratorFactory;
+import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.io.SDFWriter;
@@ -73,6 +77,7 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
 
 public class Generator {
+	//Not used by the generation; the saturation is checked with the valences of the atom types.
 	public static SaturationChecker saturation;
 	public static HashSet<String> uniquecheck=new HashSet<String>();
 	public static List<IAtomContainer> atomextlist= new ArrayList<IAtomContainer>();
@@ -80,22 +85,33 @@ public class Generator {
 	public static boolean verbose = false;
 	static String filedir = null;
 	static String molinfo= null;
+	//The job of the command line with its options, and the batch file of its inputs.
+	private GenerationJob job;
+	private String batch;
+	private int jobs = 1;
 	
-	public static Map<String, Integer> valences; 
-	static {
-		//The atom valences from CDK.
-		valences = new HashMap<String, Integer>();
-			
-		valences.put("C", 4);
-		valences.put("N", 5);
-		valences.put("O", 2);
-		valences.put("S", 6);
-		valences.put("P", 5);
-		valences.put("F", 1);
-		valences.put("I", 7);
-		valences.put("Cl", 5);
-		valences.put("Br", 5);
-		valences.put("H", 1);
+	//The atom valences by the symbols of the elements, the default ones of AtomTypes. The
+	//molecules are built with the atom types of this map, see types.
+	public static Map<String, Integer> valences = new HashMap<String, Integer>(AtomTypes.DEFAULT.map());
+	//The atom types of the valences map and the copy of the map they were built from.
+	private static AtomTypes types;
+	private static Map<String, Integer> typed;
+	
+	/**
+	 * The atom types of the valences map, built again only after a change of the map.
+	 */
+	public static synchronized AtomTypes types() {
+		if(types==null || !valences.equals(typed)) {
+			typed= new HashMap<String, Integer>(valences);
+			types= AtomTypes.of(typed);
+		}
+		return types;
+	}
+	
+	//The valence the atom was typed with by build, or the one of the valences map.
+	private static int valence(IAtom atom) {
+		Integer valence= atom.getValency();
+		return valence!=null ? valence : types().valence(atom);
 	}
 	
 	/**
@@ -104,6 +120,11 @@ public class Generator {
 	
 	//This function takes a string of atom-implicit hydrogen information to build an atomcontainer
 	public static IAtomContainer build(String mol) {
+		return build(mol,types());
+	}
+
+	//The atoms are typed with the given valences.
+	public static IAtomContainer build(String mol, AtomTypes types) {
 		IAtomContainer atomcontainer = new org.openscience.cdk.silent.AtomContainer();
 		List<String> symbols = new ArrayList<String>();
         List<Integer> hydrogens = new ArrayList<Integer>();
@@ -117,6 +138,7 @@ public class Generator {
         for(int i=0;i<symbols.size();i++) {
         	atomcontainer.addAtom(new Atom(symbols.get(i)));
         	atomcontainer.getAtom(i).setImplicitHydrogenCount(hydrogens.get(i));
+        	types.type(atomcontainer.getAtom(i));
         }
     	return atomcontainer;
     }
@@ -139,7 +161,7 @@ public class Generator {
 	
 	//Saturation checker, checking the maximum number of connected bonds of atoms.
 	public static boolean satcheck(IAtomContainer mol, int i) throws CloneNotSupportedException, CDKException, IOException{
-		if ((mol.getAtom(i).getImplicitHydrogenCount()+ordsum(mol,i))>= (int)valences.get(mol.getAtom(i).getSymbol())){ 
+		if ((mol.getAtom(i).getImplicitHydrogenCount()+ordsum(mol,i))>= valence(mol.getAtom(i))){ 
 			return false;
 		}else{
 			return true;
@@ -148,7 +170,7 @@ public class Generator {
 		
 	// Counting open sites of atoms.
 	public static int opencounter(IAtomContainer mol, int i)throws CloneNotSupportedException, CDKException, IOException{
-		int open = valences.get(mol.getAtom(i).getSymbol()).intValue()- ordsum(mol,i) - mol.getAtom(i).getImplicitHydrogenCount(); 
+		int open = valence(mol.getAtom(i))- ordsum(mol,i) - mol.getAtom(i).getImplicitHydrogenCount(); 
 		return open;
 	}
 	
@@ -229,25 +251,37 @@ public class Generator {
 	 * Function is for the initialisation of the inputs and recording the duration time.
 	 */
 	public static void HMD(String molinfo, String filedir) throws CloneNotSupportedException, CDKException, IOException {
-		long startTime = System.nanoTime(); //Recording the duration time.
-		SDFWriter outFile = new SDFWriter(new FileWriter(filedir+"output.sdf"));
-		List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
-		IAtomContainer mol=build(molinfo);
-		if(verbose) {
-			System.out.println("Input molecule is built and its image is stored in the given directory.");
-			//depict(mol,filedir+"inputmolecule.png");
+		GenerationJob job= new GenerationJob(molinfo,filedir);
+		job.verbose= verbose;
+		job.types= types();
+		job.run();
+	}
+
+	/**
+	 * Runs the jobs of the batch file, or of the standard input for -, with the options of the
+	 * given job; the given number of jobs run at the same time.
+	 */
+	public static void batch(String path, GenerationJob options, int jobs) throws IOException, InterruptedException {
+		List<GenerationJob> list;
+		try(Reader in= path.equals("-") ? new InputStreamReader(System.in,StandardCharsets.UTF_8) : new InputStreamReader(new FileInputStream(path),StandardCharsets.UTF_8)) {
+			list= Batch.read(in,options);
 		}
-        mols.add(mol);
-        if(verbose) System.out.println("Start generating structures ...");
-        genall(mols,ecindices(mol),outFile);
-        long endTime = System.nanoTime()- startTime;
-        double seconds = (double) endTime / 1000000000.0;
-		DecimalFormat d = new DecimalFormat(".###");
-        if(verbose) {
-        	System.out.println("Number of generated structures:"+" "+uniquecheck.size());
-        	System.out.println("Duration:"+" "+d.format(seconds)); //Format is second
-        }
-        outFile.close();	
+		new Batch(jobs).run(list,System.out);
+	}
+
+	/**
+	 * The duplicate check of the given name: "canon" for the canonical hashes, "inchi" for the
+	 * InChIs and "verify" for the canonical hashes verified with the InChIs.
+	 */
+	public static Deduplicator deduplicator(String name) {
+		if(name.equals("inchi")) {
+			return new InChIDeduplicator();
+		}else if(name.equals("verify")) {
+			return new CanonicalDeduplicator(true);
+		}else if(name.equals("canon")) {
+			return new CanonicalDeduplicator();
+		}
+		throw new IllegalArgumentException("Unknown duplicate check: "+name);
 	}
 	
 	/**
@@ -273,7 +307,6 @@ public class Generator {
 	 * This function extends the molecule until the chosen index, atom, is saturated.
 	 */
 	public static List<IAtomContainer> atomsat(IAtomContainer mol,int index, SDFWriter outFile) throws CloneNotSupportedException, CDKException, IOException {
-		saturation = new SaturationChecker();
 		List<IAtomContainer> de=atomext(mol,index);
         List<IAtomContainer> copy= new ArrayList<IAtomContainer>(de);
         atomextlist.clear();
@@ -331,19 +364,27 @@ public class Generator {
 	/**
 	 * This function extends the atom in the atomcontainer by adding new bond between the atom and the others.
 	 */
-	public static  List<IAtomContainer> atomext(IAtomContainer mol, int index) throws CloneNotSupportedException, CDKException, IOException { 	
+	public static  List<IAtomContainer> atomext(IAtomContainer mol, int index) throws CloneNotSupportedException, CDKException, IOException {
+		return atomext(mol,index,atomextlist);
+	}
+
+	/**
+	 * Same as atomext but the extensions are added to the given list. The input molecule is not
+	 * modified, the bond is added to its clone. Thus, the function can be called from different
+	 * threads as long as each of them uses its own list.
+	 */
+	public static List<IAtomContainer> atomext(IAtomContainer mol, int index, List<IAtomContainer> extensions) throws CloneNotSupportedException, CDKException, IOException {
 		ListMultimap<String, Integer> ec=ecenumlist(mol);
 		for(String key:ec.keySet()) {
 			int target=targetatom(ec,key,index);
-			if(index!=target && satcheck(mol,index) && satcheck(mol,target)){ 
-				IDclean(mol); //IDs are cleaned to mark the latest bond.
-				bondadder(mol,index,target);
+			if(index!=target && satcheck(mol,index) && satcheck(mol,target)){
 				IAtomContainer mol2=mol.clone();
-				atomextlist.add(mol2);
-				removelast(mol);
+				IDclean(mol2); //IDs are cleaned to mark the latest bond.
+				bondadder(mol2,index,target);
+				extensions.add(mol2);
 			}
 		}
-		return atomextlist;
+		return extensions;
 	}
 	
 	private void parseArgs(String[] args) throws ParseException
@@ -356,9 +397,46 @@ public class Generator {
 			Generator.filedir = cmd.getOptionValue("filedir");
 			
 			if (cmd.hasOption("verbose")) Generator.verbose = true;
+			//The options are kept in the job of this command line, not in static fields.
+			GenerationJob job = new GenerationJob(Generator.molinfo, Generator.filedir);
+			try {
+				job.verbose = Generator.verbose;
+				if (cmd.hasOption("gzip")) job.gzip = true;
+				if (cmd.hasOption("dedup")) job.dedup = cmd.getOptionValue("dedup");
+				//The unknown names are rejected here, not when the job runs.
+				Generator.deduplicator(job.dedup);
+				if (cmd.hasOption("threads")) job.threads = integer(cmd, "threads");
+				if (cmd.hasOption("progress")) job.progress = integer(cmd, "progress");
+				if (cmd.hasOption("metrics")) job.json = cmd.getOptionValue("metrics");
+				if (cmd.hasOption("checkpoint")) job.checkpoint = integer(cmd, "checkpoint");
+				if (cmd.hasOption("resume")) job.resume = true;
+				if (cmd.hasOption("shard")) job.shard = Shard.parse(cmd.getOptionValue("shard"));
+				if (cmd.hasOption("no-pruning")) job.pruning = false;
+				if (cmd.hasOption("orderly")) job.orderly = true;
+				if (cmd.hasOption("cache")) job.cache = integer(cmd, "cache");
+				if (cmd.hasOption("formula")) job.formula = true;
+				if (cmd.hasOption("count-only")) job.countonly = true;
+				if (cmd.hasOption("sample")) job.sample = integer(cmd, "sample");
+				if (cmd.hasOption("seed")) job.seed = number(cmd, "seed");
+				if (cmd.hasOption("constraints")) job.constraints = Constraints.parse(cmd.getOptionValue("constraints"));
+				if (cmd.hasOption("format")) job.format = cmd.getOptionValue("format");
+				GenerationJob.extension(job.format);
+				if (cmd.hasOption("memory")) job.memory = integer(cmd, "memory");
+				job.types = cmd.hasOption("valences") ? AtomTypes.parse(cmd.getOptionValue("valences")) : types();
+				if (cmd.hasOption("sorted")) job.sorted = true;
+				if (cmd.hasOption("fingerprint")) job.fingerprint = true;
+			} catch (IllegalArgumentException e) {
+				throw new ParseException(e.getMessage());
+			}
+			this.job = job;
+			this.batch = cmd.getOptionValue("batch");
+			if (cmd.hasOption("jobs")) this.jobs = integer(cmd, "jobs");
+			//The jobs of a batch would write the same metrics file.
+			if (batch != null && job.json != null) throw new ParseException("The metrics option is not supported with a batch");
 		
 		} catch (ParseException e) {
 			// TODO Auto-generated catch block
+			System.out.println(e.getMessage());
 			HelpFormatter formatter = new HelpFormatter();
 			formatter.setOptionComparator(null);
 			String header = "\nGenerates structures for a given molecular information."
@@ -371,17 +449,51 @@ public class Generator {
 			throw new ParseException("Problem parsing command line");
 		}
 	}
+
+	/**
+	 * The number given to the option, or a ParseException with the value if it is not a number.
+	 */
+	private static long number(CommandLine cmd, String option) throws ParseException {
+		String value = cmd.getOptionValue(option);
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new ParseException("The value of the "+option+" option is not a number: "+value);
+		}
+	}
+
+	private static int integer(CommandLine cmd, String option) throws ParseException {
+		long value = number(cmd, option);
+		if (value != (int) value) throw new ParseException("The value of the "+option+" option is too large: "+value);
+		return (int) value;
+	}
 	
 	private Options setupOptions(String[] args)
 	{
 		Options options = new Options();
 		Option molinfo = Option.builder("i")
-			     .required(true)
 			     .hasArg()
 			     .longOpt("molecularinfo")
-			     .desc("String of atoms with their implicit hydrogen information (required)")
+			     .desc("String of atoms with their implicit hydrogen information")
 			     .build();
-		options.addOption(molinfo);
+		Option batch = Option.builder("b")
+			     .hasArg()
+			     .longOpt("batch")
+			     .desc("File of molecular informations, one per line with an optional output name, or - for the standard input. The outputs are written to [name].sdf, so the names must be different; the other options, except the metrics, apply to each job")
+			     .build();
+		//Either one input or a batch of inputs is required.
+		OptionGroup input = new OptionGroup();
+		input.addOption(molinfo);
+		input.addOption(batch);
+		input.setRequired(true);
+		options.addOptionGroup(input);
+		Option jobs = Option.builder("J")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("jobs")
+			     .desc("Number of the jobs of a batch running at the same time (default 1)")
+			     .build();
+		options.addOption(jobs);
 		Option verbose = Option.builder("v")
 			     .required(false)
 			     .longOpt("verbose")
@@ -395,6 +507,145 @@ public class Generator {
 			     .desc("Creates and store the output sdf file in the directory (required)")
 			     .build();
 		options.addOption(filedir);
+		Option format = Option.builder("w")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("format")
+			     .desc("Output format: sdf (default), smi (canonical SMILES, one per line) or bin (binary graphs, read by HMD.BinaryReader)")
+			     .build();
+		options.addOption(format);
+		Option threads = Option.builder("t")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("threads")
+			     .desc("Number of threads for the parallel generation (default 1)")
+			     .build();
+		options.addOption(threads);
+		Option gzip = Option.builder("z")
+			     .required(false)
+			     .longOpt("gzip")
+			     .desc("Compress the output file with gzip (output.sdf.gz)")
+			     .build();
+		options.addOption(gzip);
+		Option dedup = Option.builder("u")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("dedup")
+			     .desc("Duplicate check: canon (canonical hashes, default), inchi or verify (canonical hashes checked with InChIs)")
+			     .build();
+		options.addOption(dedup);
+		Option progress = Option.builder("p")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("progress")
+			     .desc("Print the progress of the generation every given number of seconds")
+			     .build();
+		options.addOption(progress);
+		Option metrics = Option.builder("m")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("metrics")
+			     .desc("Write the counters and timings of the run to the given JSON file")
+			     .build();
+		options.addOption(metrics);
+		Option checkpoint = Option.builder("c")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("checkpoint")
+			     .desc("Write a checkpoint to the output directory every given number of seconds")
+			     .build();
+		options.addOption(checkpoint);
+		Option resume = Option.builder("r")
+			     .required(false)
+			     .longOpt("resume")
+			     .desc("Continue the generation from the checkpoint in the output directory")
+			     .build();
+		options.addOption(resume);
+		Option shard = Option.builder("s")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("shard")
+			     .desc("Generate only the part k of N of the search, written to output.kofN.sdf")
+			     .build();
+		options.addOption(shard);
+		Option pruning = Option.builder("n")
+			     .required(false)
+			     .longOpt("no-pruning")
+			     .desc("Extend also the structures which can never be connected")
+			     .build();
+		options.addOption(pruning);
+		Option orderly = Option.builder("o")
+			     .required(false)
+			     .longOpt("orderly")
+			     .desc("Generate the saturated structures by canonical augmentation, without a duplicate check")
+			     .build();
+		options.addOption(orderly);
+		Option cache = Option.builder("k")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("cache")
+			     .desc("Number of the extensions kept in the expansion cache (default 262144, 0 disables the cache)")
+			     .build();
+		options.addOption(cache);
+		Option formula = Option.builder("f")
+			     .required(false)
+			     .longOpt("formula")
+			     .desc("The input is a molecular formula like C6H14; the structures of all the hydrogen distributions are generated")
+			     .build();
+		options.addOption(formula);
+		Option countonly = Option.builder("x")
+			     .required(false)
+			     .longOpt("count-only")
+			     .desc("Count the structures without building and writing them")
+			     .build();
+		options.addOption(countonly);
+		Option sample = Option.builder("a")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("sample")
+			     .desc("Write only a uniform random sample of the given number of structures")
+			     .build();
+		options.addOption(sample);
+		Option seed = Option.builder("e")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("seed")
+			     .desc("Seed of the random sample (default 0)")
+			     .build();
+		options.addOption(seed);
+		Option constraints = Option.builder("g")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("constraints")
+			     .desc("Constraints of the structures, like maxorder=2;forbid=N-N,N-O;maxdegree=C:3;rings=0-1;bad=C=C=C;good=C=O")
+			     .build();
+		options.addOption(constraints);
+		Option memory = Option.builder("l")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("memory")
+			     .desc("Memory budget of the duplicate check in MB; beyond it, the canonical hashes are spilled to the output directory")
+			     .build();
+		options.addOption(memory);
+		Option valences = Option.builder("y")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("valences")
+			     .desc("Valences of the elements instead of the default ones, like N=5,S=6")
+			     .build();
+		options.addOption(valences);
+		Option sorted = Option.builder("q")
+			     .required(false)
+			     .longOpt("sorted")
+			     .desc("Write the structures in the order of their canonical hashes, the same in every run")
+			     .build();
+		options.addOption(sorted);
+		Option fingerprint = Option.builder("j")
+			     .required(false)
+			     .longOpt("fingerprint")
+			     .desc("Print the fingerprint of the run: the number of structures and the sum of their canonical hashes")
+			     .build();
+		options.addOption(fingerprint);
 		return options;
 	}
 	
@@ -405,7 +656,14 @@ public class Generator {
 		try {
 			gen = new Generator();
 			gen.parseArgs(args);
-			Generator.HMD(Generator.molinfo, Generator.filedir);
+			if(gen.batch!=null) {
+				batch(gen.batch, gen.job, gen.jobs);
+			}else {
+				gen.job.run();
+			}
+		} catch (IllegalArgumentException e) {
+			//The options which can not be used together are only found when the job runs.
+			System.out.println(e.getMessage());
 		} catch (Exception e) {
 			// We don't do anything here. Apache CLI will print a usage text.
 			if (Generator.verbose) e.getCause(); 
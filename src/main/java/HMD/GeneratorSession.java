@@ -0,0 +1,386 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * A generation session: an input with its options, built with the builder of the session,
+ * and everything the generation of the input needs. The sessions do not share any state,
+ * unlike the static functions of the Generator, so several sessions can run at the same
+ * time in the same process, for example for the requests of a service.
+ *
+ * GeneratorSession session= GeneratorSession.builder("C3C3CC2CC")
+ *         .constraints(Constraints.parse("maxorder=2"))
+ *         .sink(sink)
+ *         .threads(4)
+ *         .build();
+ * long count= session.generate();
+ *
+ * The input is a molecular information or, with formula, a molecular formula whose hydrogen
+ * distributions are generated with the same duplicate check; only the structures with all
+ * their atoms saturated are written for a formula. The structures are written to
+ * the structure sink, or their graphs to the graph sink; without a sink, they are only
+ * counted. The atom types, also of the formula, are the ones of the builder. The InChI
+ * factory and the depiction generator are created once for the session.
+ *
+ * A molecular information can also be generated only for a shard of the search and, in
+ * the sequential generation of the structures, with a checkpoint, as the jobs of the
+ * command line, which run their generations as sessions.
+ * A running session can be cancelled from another thread.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openscience.cdk.depict.DepictionGenerator;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.inchi.InChIGeneratorFactory;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class GeneratorSession {
+	private final String input;
+	private final boolean formula;
+	private final AtomTypes types;
+	private final Constraints constraints;
+	private final int threads;
+	private final Deduplicator uniquecheck;
+	private final StructureSink sink;
+	private final GraphSink graphs;
+	private final boolean orderly;
+	private final boolean pruning;
+	private final int cache;
+	private final Shard shard;
+	private final Checkpoint checkpoint;
+	private final Checkpoint resume;
+	private final Metrics metrics= new Metrics();
+	private final Map<String,Long> counts= new LinkedHashMap<String,Long>();
+	private final AtomicBoolean cancelled= new AtomicBoolean();
+	//The structures written before the checkpoint the generation continues from.
+	private long restored= 0;
+	private InChIGeneratorFactory inchis;
+	private DepictionGenerator depiction;
+
+	private GeneratorSession(Builder builder) {
+		this.input= builder.input;
+		this.formula= builder.formula;
+		this.types= builder.types;
+		this.constraints= builder.constraints;
+		this.threads= builder.threads;
+		this.uniquecheck= builder.uniquecheck!=null ? builder.uniquecheck : new CanonicalDeduplicator();
+		this.sink= builder.sink;
+		this.graphs= builder.sink==null && builder.graphs==null ? GraphSink.NONE : builder.graphs;
+		this.orderly= builder.orderly;
+		this.pruning= builder.pruning;
+		this.cache= builder.cache;
+		this.shard= builder.shard;
+		this.checkpoint= builder.checkpoint;
+		this.resume= builder.resume;
+		if((shard!=null || checkpoint!=null || resume!=null) && (formula || orderly)) {
+			throw new IllegalArgumentException("The checkpoints and the shards are not supported for the formula input and the orderly generation");
+		}
+		if((checkpoint!=null || resume!=null) && (threads>1 || sink==null)) {
+			throw new IllegalArgumentException("The checkpoints are only supported for the sequential generation of the structures");
+		}
+	}
+
+	/**
+	 * The builder of a session for the molecular information or the formula.
+	 */
+	public static Builder builder(String input) {
+		return new Builder(input);
+	}
+
+	/**
+	 * Generates the structures of the input and returns their number, with the ones written
+	 * before the checkpoint it continues from. The metrics of the session are the sums of
+	 * the ones of its generations.
+	 */
+	public long generate() throws CloneNotSupportedException, CDKException, IOException {
+		List<String> molinfos= formula ? new Formula(input,types).distributions() : Collections.singletonList(input);
+		long count= 0;
+		try {
+			for(String molinfo: molinfos) {
+				Metrics part= generate(build(molinfo));
+				counts.put(molinfo,restored+part.getWritten());
+				count+= restored+part.getWritten();
+				metrics.add(part);
+			}
+		}finally {
+			metrics.finish();
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the structures of the molecule with the engine of the options. The metrics of
+	 * the engine are read with the ones of the session while it runs.
+	 */
+	private Metrics generate(IAtomContainer mol) throws CloneNotSupportedException, CDKException, IOException {
+		if(orderly) {
+			OrderlyGenerator generator= new OrderlyGenerator(threads);
+			generator.constraints(constraints);
+			generator.cancellation(cancelled);
+			metrics.running(generator.metrics());
+			try {
+				if(graphs!=null) {
+					generator.enumerate(mol,graphs);
+				}else {
+					generator.generate(mol,sink);
+				}
+			}finally {
+				generator.shutdown();
+			}
+			return generator.metrics();
+		}else if(threads>1) {
+			ParallelGenerator parallel= new ParallelGenerator(threads,uniquecheck);
+			parallel.pruning(pruning);
+			parallel.complete(formula);
+			parallel.cache(new ExpansionCache(cache));
+			parallel.constraints(constraints);
+			parallel.cancellation(cancelled);
+			metrics.running(parallel.metrics());
+			try {
+				if(graphs!=null) {
+					parallel.enumerate(mol,Generator.ecindices(mol),graphs,shard);
+				}else {
+					parallel.genall(mol,Generator.ecindices(mol),sink,shard);
+				}
+			}finally {
+				parallel.shutdown();
+			}
+			return parallel.metrics();
+		}
+		StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol),uniquecheck);
+		stream.pruning(pruning);
+		stream.complete(formula);
+		stream.cache(new ExpansionCache(cache));
+		stream.constraints(constraints);
+		stream.cancellation(cancelled);
+		metrics.running(stream.metrics());
+		if(resume!=null) {
+			resume.restore(stream);
+			restored= stream.count();
+		}else if(shard!=null) {
+			stream.shard(shard);
+		}
+		if(graphs!=null) {
+			stream.enumerate(graphs);
+		}else {
+			stream.generate(sink,checkpoint);
+		}
+		return stream.metrics();
+	}
+
+	/**
+	 * Stops the generation of the session from any thread; generate throws a CancellationException.
+	 */
+	public void cancel() {
+		cancelled.set(true);
+	}
+
+	public boolean cancelled() {
+		return cancelled.get();
+	}
+
+	/**
+	 * The atom container of the molecular information, typed with the atom types of the session.
+	 */
+	public IAtomContainer build(String molinfo) {
+		return Generator.build(molinfo,types);
+	}
+
+	/**
+	 * The metrics of the session; the counters of a generation are added when it is finished.
+	 */
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * The number of the structures of each generated molecular information, for example of
+	 * each hydrogen distribution of a formula.
+	 */
+	public Map<String,Long> counts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * The duplicate check of the session.
+	 */
+	public Deduplicator deduplicator() {
+		return uniquecheck;
+	}
+
+	/**
+	 * The InChI of the structure, with the InChI factory of the session.
+	 */
+	public synchronized String inchi(IAtomContainer mol) throws CDKException {
+		if(inchis==null) inchis= InChIGeneratorFactory.getInstance();
+		return InChIDeduplicator.inchigen(inchis,mol);
+	}
+
+	/**
+	 * Writes the depiction of the structure to the path, as the depict function of the
+	 * Generator, with the depiction generator of the session.
+	 */
+	public synchronized void depict(IAtomContainer mol, String path) throws CDKException, IOException {
+		if(depiction==null) depiction= new DepictionGenerator().withCarbonSymbols().withSize(1000,1000).withZoom(4);
+		depiction.depict(mol).writeTo(path);
+	}
+
+	/**
+	 * The options of a session. The defaults are the ones of the command line.
+	 */
+	public static class Builder {
+		private final String input;
+		private boolean formula= false;
+		private AtomTypes types= AtomTypes.DEFAULT;
+		private Constraints constraints= null;
+		private int threads= 1;
+		private Deduplicator uniquecheck= null;
+		private StructureSink sink= null;
+		private GraphSink graphs= null;
+		private boolean orderly= false;
+		private boolean pruning= true;
+		private int cache= ExpansionCache.SIZE;
+		private Shard shard= null;
+		private Checkpoint checkpoint= null;
+		private Checkpoint resume= null;
+
+		private Builder(String input) {
+			if(input==null || input.isEmpty()) {
+				throw new IllegalArgumentException("No input for the session");
+			}
+			this.input= input;
+		}
+
+		/**
+		 * The input is a molecular formula like C6H14.
+		 */
+		public Builder formula(boolean formula) {
+			this.formula= formula;
+			return this;
+		}
+
+		public Builder types(AtomTypes types) {
+			this.types= types;
+			return this;
+		}
+
+		public Builder constraints(Constraints constraints) {
+			this.constraints= constraints;
+			return this;
+		}
+
+		public Builder threads(int threads) {
+			if(threads<1) {
+				throw new IllegalArgumentException("Invalid number of threads: "+threads);
+			}
+			this.threads= threads;
+			return this;
+		}
+
+		/**
+		 * The duplicate check, the canonical hashes by default. It is not used in the orderly mode.
+		 */
+		public Builder deduplicator(Deduplicator uniquecheck) {
+			this.uniquecheck= uniquecheck;
+			return this;
+		}
+
+		/**
+		 * The sink of the structures. The sink is called from one thread at a time.
+		 */
+		public Builder sink(StructureSink sink) {
+			this.sink= sink;
+			this.graphs= null;
+			return this;
+		}
+
+		/**
+		 * The sink of the graphs of the structures; their atom containers are not built.
+		 */
+		public Builder graphs(GraphSink graphs) {
+			this.graphs= graphs;
+			this.sink= null;
+			return this;
+		}
+
+		/**
+		 * The saturated structures are generated by canonical augmentation, see OrderlyGenerator.
+		 */
+		public Builder orderly(boolean orderly) {
+			this.orderly= orderly;
+			return this;
+		}
+
+		public Builder pruning(boolean pruning) {
+			this.pruning= pruning;
+			return this;
+		}
+
+		/**
+		 * The number of the extensions kept in the expansion cache.
+		 */
+		public Builder cache(int cache) {
+			this.cache= cache;
+			return this;
+		}
+
+		/**
+		 * Only the part of the shard of the search is generated.
+		 */
+		public Builder shard(Shard shard) {
+			this.shard= shard;
+			return this;
+		}
+
+		/**
+		 * The checkpoint written when it is due, in the sequential generation of the structures.
+		 */
+		public Builder checkpoint(Checkpoint checkpoint) {
+			this.checkpoint= checkpoint;
+			return this;
+		}
+
+		/**
+		 * The checkpoint the generation continues from.
+		 */
+		public Builder resume(Checkpoint resume) {
+			this.resume= resume;
+			return this;
+		}
+
+		public GeneratorSession build() {
+			return new GeneratorSession(this);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The duplicate check with InChIs, as in the uniquecheck set of the Generator.
+ * The InChI strings of all the unique structures are kept in memory.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.inchi.InChIGeneratorFactory;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class InChIDeduplicator implements Deduplicator {
+	private final Set<String> uniquecheck= ConcurrentHashMap.newKeySet();
+	private volatile InChIGeneratorFactory factory;
+
+	//The native InChI library is not re-entrant, the calls are serialised here.
+	private static final Object inchilock= new Object();
+
+	public boolean add(MoleculeGraph mol) throws CDKException {
+		if(factory==null) factory= InChIGeneratorFactory.getInstance();
+		return uniquecheck.add(inchigen(factory,mol.container()));
+	}
+
+	public long size() {
+		return uniquecheck.size();
+	}
+
+	public void save(DataOutput out) throws IOException {
+		out.writeInt(uniquecheck.size());
+		for(String inchi: uniquecheck) {
+			out.writeUTF(inchi);
+		}
+	}
+
+	public void load(DataInput in) throws IOException {
+		int count= in.readInt();
+		for(int i=0;i<count;i++) {
+			uniquecheck.add(in.readUTF());
+		}
+	}
+
+	/**
+	 * The InChIs of the unique structures.
+	 */
+	public Set<String> inchis(){
+		return uniquecheck;
+	}
+
+	public static String inchigen(IAtomContainer mol) throws CDKException {
+		return inchigen(InChIGeneratorFactory.getInstance(),mol);
+	}
+
+	/**
+	 * The InChI of the molecule with the given factory.
+	 */
+	static String inchigen(InChIGeneratorFactory factory, IAtomContainer mol) throws CDKException {
+		synchronized(inchilock) {
+			return factory.getInChIGenerator(mol).getInchi();
+		}
+	}
+}
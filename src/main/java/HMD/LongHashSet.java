@@ -0,0 +1,166 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * An open addressing hash set of 128 bit keys stored in a primitive long array.
+ * Each key takes two longs of the table; there are no entry objects. The keys
+ * are expected to be hashes already, so the low bits are used directly as the
+ * slot after a final mixing.
+ *
+ * The set is not thread-safe.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class LongHashSet {
+	private static final float LOADFACTOR= 0.6f;
+
+	private long[] table;
+	private int mask;
+	private int size= 0;
+	private boolean zero= false; //The key (0,0) marks the empty slots, so it is stored separately.
+
+	public LongHashSet() {
+		this(1024);
+	}
+
+	public LongHashSet(int capacity) {
+		int slots= Integer.highestOneBit(Math.max(16,(int)(capacity/LOADFACTOR))-1)<<1;
+		this.table= new long[2*slots];
+		this.mask= slots-1;
+	}
+
+	/**
+	 * Adds the key and returns true if it was not in the set.
+	 */
+	public boolean add(long hi, long lo) {
+		if(hi==0 && lo==0) {
+			if(zero) return false;
+			zero= true;
+			size++;
+			return true;
+		}
+		int slot= slot(hi,lo);
+		while(table[2*slot]!=0 || table[2*slot+1]!=0) {
+			if(table[2*slot]==hi && table[2*slot+1]==lo) return false;
+			slot= (slot+1) & mask;
+		}
+		table[2*slot]= hi;
+		table[2*slot+1]= lo;
+		size++;
+		if(size > LOADFACTOR*(mask+1)) resize();
+		return true;
+	}
+
+	public boolean contains(long hi, long lo) {
+		if(hi==0 && lo==0) return zero;
+		int slot= slot(hi,lo);
+		while(table[2*slot]!=0 || table[2*slot+1]!=0) {
+			if(table[2*slot]==hi && table[2*slot+1]==lo) return true;
+			slot= (slot+1) & mask;
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		java.util.Arrays.fill(table,0);
+		zero= false;
+		size= 0;
+	}
+
+	/**
+	 * The keys as pairs of longs, the high and the low half of each key.
+	 */
+	public long[] keys() {
+		long[] keys= new long[2*size];
+		int k= 0;
+		if(zero) k+= 2;
+		for(int i=0;i<table.length;i+=2) {
+			if(table[i]!=0 || table[i+1]!=0) {
+				keys[k++]= table[i];
+				keys[k++]= table[i+1];
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Writes the number of keys and the keys.
+	 */
+	public void save(DataOutput out) throws IOException {
+		out.writeInt(size);
+		if(zero) {
+			out.writeLong(0);
+			out.writeLong(0);
+		}
+		for(int i=0;i<table.length;i+=2) {
+			if(table[i]!=0 || table[i+1]!=0) {
+				out.writeLong(table[i]);
+				out.writeLong(table[i+1]);
+			}
+		}
+	}
+
+	/**
+	 * Adds the keys written by save.
+	 */
+	public void load(DataInput in) throws IOException {
+		int count= in.readInt();
+		for(int i=0;i<count;i++) {
+			add(in.readLong(),in.readLong());
+		}
+	}
+
+	private int slot(long hi, long lo) {
+		long h= (hi ^ Long.rotateLeft(lo,32)) * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h>>>32)) & mask;
+	}
+
+	private void resize() {
+		long[] old= table;
+		table= new long[2*old.length];
+		mask= (table.length/2)-1;
+		for(int i=0;i<old.length;i+=2) {
+			if(old[i]!=0 || old[i+1]!=0) {
+				int slot= slot(old[i],old[i+1]);
+				while(table[2*slot]!=0 || table[2*slot+1]!=0) {
+					slot= (slot+1) & mask;
+				}
+				table[2*slot]= old[i];
+				table[2*slot+1]= old[i+1];
+			}
+		}
+	}
+}
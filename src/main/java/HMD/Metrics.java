@@ -0,0 +1,380 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The counters and timings of a generation run. The generators update the counters
+ * while running, so they can be read during the run: by the periodic progress
+ * report, as a JSON document or through JMX. The metrics of several runs, like the
+ * ones of a session, add the counters of each finished run and read the ones of the
+ * run in progress.
+ *
+ * The counters are:
+ *   expansions   : atomext steps, each one extending a structure from an index
+ *   extensions   : structures built by these steps, i.e. the copied graphs
+ *   containers   : atom containers built for the output
+ *   saturated    : extensions saturating their index
+ *   disconnected : saturated structures discarded since they are not connected
+ *   duplicates   : saturated structures rejected by the duplicate check
+ *   unique       : structures passing the duplicate check
+ *   written      : structures passed to the sink
+ *   pruned       : extensions not extended since they can never be connected
+ *   rejected     : connected structures not meeting the constraints, or not
+ *                  saturated if only the complete structures are written
+ *   pending      : extensions waiting to be extended
+ *
+ * The time of the symmetry classes is the time of the class calculations; the
+ * cached classes are counted as hits. The hits of the expansion cache are the
+ * extensions not extended again and the saturated structures not checked again.
+ * The time of the duplicate check and of the output are measured around the calls
+ * of the generator.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class Metrics implements MetricsMBean {
+	final LongAdder expansions= new LongAdder();
+	final LongAdder extensions= new LongAdder();
+	final LongAdder containers= new LongAdder();
+	final LongAdder saturated= new LongAdder();
+	final LongAdder disconnected= new LongAdder();
+	final LongAdder duplicates= new LongAdder();
+	final LongAdder unique= new LongAdder();
+	final LongAdder written= new LongAdder();
+	final LongAdder pruned= new LongAdder();
+	final LongAdder rejected= new LongAdder();
+	final LongAdder dedupnanos= new LongAdder();
+	final LongAdder outputnanos= new LongAdder();
+	volatile long pending= 0;
+
+	//The counters of the caches of the runs added to these metrics.
+	private final LongAdder symmetryhits= new LongAdder();
+	private final LongAdder symmetrymisses= new LongAdder();
+	private final LongAdder symmetrynanos= new LongAdder();
+	private final LongAdder cachehits= new LongAdder();
+	private final LongAdder cachemisses= new LongAdder();
+	private final LongAdder cacheevictions= new LongAdder();
+
+	private final long start= System.nanoTime();
+	private volatile long end= 0;
+	private volatile SymmetryClasses symmetry;
+	private volatile ExpansionCache cache;
+	private volatile Fingerprint fingerprint;
+	private volatile Metrics running;
+	private ScheduledExecutorService reporter;
+	private ObjectName name;
+
+	/**
+	 * The symmetry class cache of the run, for its counters and time.
+	 */
+	void symmetry(SymmetryClasses symmetry) {
+		this.symmetry= symmetry;
+	}
+
+	/**
+	 * The expansion cache of the run, for its counters.
+	 */
+	void cache(ExpansionCache cache) {
+		this.cache= cache;
+	}
+
+	/**
+	 * The fingerprint of the run, if it is calculated.
+	 */
+	void fingerprint(Fingerprint fingerprint) {
+		this.fingerprint= fingerprint;
+	}
+
+	/**
+	 * The run in progress, whose counters are read with these metrics until it is added.
+	 */
+	void running(Metrics run) {
+		this.running= run;
+	}
+
+	/**
+	 * Adds the counters and the timings of a finished run, for the runs of a job generating
+	 * several inputs. The elapsed time is the one of these metrics.
+	 */
+	void add(Metrics run) {
+		if(running==run) running= null;
+		expansions.add(run.getExpansions());
+		extensions.add(run.getExtensions());
+		containers.add(run.getContainers());
+		saturated.add(run.getSaturated());
+		disconnected.add(run.getDisconnected());
+		duplicates.add(run.getDuplicates());
+		unique.add(run.getUnique());
+		written.add(run.getWritten());
+		pruned.add(run.getPruned());
+		rejected.add(run.getRejected());
+		dedupnanos.add(run.dedupnanos.sum());
+		outputnanos.add(run.outputnanos.sum());
+		symmetryhits.add(run.getSymmetryHits());
+		symmetrymisses.add(run.getSymmetryMisses());
+		symmetrynanos.add(run.symmetrynanos.sum()+(run.symmetry==null ? 0 : run.symmetry.nanos()));
+		cachehits.add(run.getCacheHits());
+		cachemisses.add(run.getCacheMisses());
+		cacheevictions.add(run.getCacheEvictions());
+	}
+
+	/**
+	 * Stops the clock and the progress report.
+	 */
+	public synchronized void finish() {
+		if(end==0) end= System.nanoTime();
+		if(reporter!=null) {
+			reporter.shutdown();
+			reporter= null;
+		}
+	}
+
+	public long getExpansions() {
+		Metrics run= running;
+		return expansions.sum()+(run==null ? 0 : run.getExpansions());
+	}
+
+	public long getExtensions() {
+		Metrics run= running;
+		return extensions.sum()+(run==null ? 0 : run.getExtensions());
+	}
+
+	public long getContainers() {
+		Metrics run= running;
+		return containers.sum()+(run==null ? 0 : run.getContainers());
+	}
+
+	public long getSaturated() {
+		Metrics run= running;
+		return saturated.sum()+(run==null ? 0 : run.getSaturated());
+	}
+
+	public long getDisconnected() {
+		Metrics run= running;
+		return disconnected.sum()+(run==null ? 0 : run.getDisconnected());
+	}
+
+	public long getDuplicates() {
+		Metrics run= running;
+		return duplicates.sum()+(run==null ? 0 : run.getDuplicates());
+	}
+
+	public long getUnique() {
+		Metrics run= running;
+		return unique.sum()+(run==null ? 0 : run.getUnique());
+	}
+
+	public long getWritten() {
+		Metrics run= running;
+		return written.sum()+(run==null ? 0 : run.getWritten());
+	}
+
+	public long getPruned() {
+		Metrics run= running;
+		return pruned.sum()+(run==null ? 0 : run.getPruned());
+	}
+
+	public long getRejected() {
+		Metrics run= running;
+		return rejected.sum()+(run==null ? 0 : run.getRejected());
+	}
+
+	public long getPending() {
+		Metrics run= running;
+		return run==null ? pending : run.getPending();
+	}
+
+	public long getSymmetryHits() {
+		Metrics run= running;
+		return symmetryhits.sum()+(symmetry==null ? 0 : symmetry.hits())+(run==null ? 0 : run.getSymmetryHits());
+	}
+
+	public long getSymmetryMisses() {
+		Metrics run= running;
+		return symmetrymisses.sum()+(symmetry==null ? 0 : symmetry.misses())+(run==null ? 0 : run.getSymmetryMisses());
+	}
+
+	public long getCacheHits() {
+		Metrics run= running;
+		return cachehits.sum()+(cache==null ? 0 : cache.hits())+(run==null ? 0 : run.getCacheHits());
+	}
+
+	public long getCacheMisses() {
+		Metrics run= running;
+		return cachemisses.sum()+(cache==null ? 0 : cache.misses())+(run==null ? 0 : run.getCacheMisses());
+	}
+
+	public long getCacheEvictions() {
+		Metrics run= running;
+		return cacheevictions.sum()+(cache==null ? 0 : cache.evictions())+(run==null ? 0 : run.getCacheEvictions());
+	}
+
+	public double getSymmetrySeconds() {
+		Metrics run= running;
+		return (symmetrynanos.sum()+(symmetry==null ? 0 : symmetry.nanos()))/1e9+(run==null ? 0 : run.getSymmetrySeconds());
+	}
+
+	public double getDedupSeconds() {
+		Metrics run= running;
+		return dedupnanos.sum()/1e9+(run==null ? 0 : run.getDedupSeconds());
+	}
+
+	public double getOutputSeconds() {
+		Metrics run= running;
+		return outputnanos.sum()/1e9+(run==null ? 0 : run.getOutputSeconds());
+	}
+
+	public double getElapsedSeconds() {
+		return ((end==0 ? System.nanoTime() : end)-start)/1e9;
+	}
+
+	public double getWrittenPerSecond() {
+		return rate(getWritten());
+	}
+
+	public double getExtensionsPerSecond() {
+		return rate(getExtensions());
+	}
+
+	/**
+	 * The fingerprint of the structures so far, null if it is not calculated.
+	 */
+	public String getFingerprint() {
+		return fingerprint==null ? null : fingerprint.toString();
+	}
+
+	public boolean isFinished() {
+		return end!=0;
+	}
+
+	private double rate(long count) {
+		double seconds= getElapsedSeconds();
+		return seconds>0 ? count/seconds : 0;
+	}
+
+	/**
+	 * One line summary of the run.
+	 */
+	public String getProgress() {
+		DecimalFormat d= new DecimalFormat("0.#");
+		return "Elapsed: "+d.format(getElapsedSeconds())+" s"
+				+", written: "+getWritten()+" ("+d.format(getWrittenPerSecond())+"/s)"
+				+", extensions: "+getExtensions()+" ("+d.format(getExtensionsPerSecond())+"/s)"
+				+", duplicates: "+getDuplicates()
+				+", disconnected: "+getDisconnected()
+				+", pruned: "+getPruned()
+				+", cache hits: "+getCacheHits()
+				+", pending: "+getPending();
+	}
+
+	/**
+	 * The counters, timings and rates as a JSON object.
+	 */
+	public String toJson() {
+		StringBuilder json= new StringBuilder("{");
+		field(json,"finished",String.valueOf(isFinished()));
+		field(json,"elapsedSeconds",number(getElapsedSeconds()));
+		field(json,"expansions",String.valueOf(getExpansions()));
+		field(json,"extensions",String.valueOf(getExtensions()));
+		field(json,"containers",String.valueOf(getContainers()));
+		field(json,"saturated",String.valueOf(getSaturated()));
+		field(json,"disconnected",String.valueOf(getDisconnected()));
+		field(json,"duplicates",String.valueOf(getDuplicates()));
+		field(json,"unique",String.valueOf(getUnique()));
+		field(json,"written",String.valueOf(getWritten()));
+		field(json,"pruned",String.valueOf(getPruned()));
+		field(json,"rejected",String.valueOf(getRejected()));
+		field(json,"pending",String.valueOf(getPending()));
+		field(json,"symmetryHits",String.valueOf(getSymmetryHits()));
+		field(json,"symmetryMisses",String.valueOf(getSymmetryMisses()));
+		field(json,"cacheHits",String.valueOf(getCacheHits()));
+		field(json,"cacheMisses",String.valueOf(getCacheMisses()));
+		field(json,"cacheEvictions",String.valueOf(getCacheEvictions()));
+		field(json,"symmetrySeconds",number(getSymmetrySeconds()));
+		field(json,"dedupSeconds",number(getDedupSeconds()));
+		field(json,"outputSeconds",number(getOutputSeconds()));
+		field(json,"writtenPerSecond",number(getWrittenPerSecond()));
+		field(json,"extensionsPerSecond",number(getExtensionsPerSecond()));
+		if(fingerprint!=null) field(json,"fingerprint","\""+getFingerprint()+"\"");
+		json.setLength(json.length()-1);
+		return json.append("}").toString();
+	}
+
+	private static void field(StringBuilder json, String key, String value) {
+		json.append('"').append(key).append("\":").append(value).append(',');
+	}
+
+	private static String number(double value) {
+		return String.format(Locale.ROOT,"%.3f",value);
+	}
+
+	/**
+	 * Prints the progress line periodically until the run is finished.
+	 */
+	public synchronized void report(long seconds, final PrintStream out) {
+		if(reporter!=null || end!=0) return;
+		reporter= Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread= new Thread(r,"HMD-progress");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				out.println(getProgress());
+			}
+		},seconds,seconds,TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Registers the metrics to the platform MBean server as HMD:type=Metrics,name=[name].
+	 */
+	public void register(String name) throws JMException {
+		this.name= new ObjectName("HMD:type=Metrics,name="+ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this,this.name);
+	}
+
+	public void unregister() throws JMException {
+		if(name!=null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name= null;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The JMX interface of the run metrics, see Metrics.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+public interface MetricsMBean {
+	long getExpansions();
+	long getExtensions();
+	long getContainers();
+	long getSaturated();
+	long getDisconnected();
+	long getDuplicates();
+	long getUnique();
+	long getWritten();
+	long getPruned();
+	long getRejected();
+
+	long getPending();
+	long getSymmetryHits();
+	long getSymmetryMisses();
+	long getCacheHits();
+	long getCacheMisses();
+	long getCacheEvictions();
+	double getSymmetrySeconds();
+	double getDedupSeconds();
+	double getOutputSeconds();
+	double getElapsedSeconds();
+	double getWrittenPerSecond();
+	double getExtensionsPerSecond();
+	String getFingerprint();
+	boolean isFinished();
+	String getProgress();
+}
@@ -0,0 +1,514 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * A lightweight molecule representation for the extension steps of the generators.
+ * The bonds are stored in a bond order matrix and the bond order sums of the atoms
+ * are updated with each added bond, so the saturation checks do not iterate over
+ * the bonds. An extension copies only the matrix and the sums; the atom information
+ * is shared by all the extensions of the same input.
+ *
+ * The components of the atoms are also updated with the added bonds, so the
+ * connectivity checks do not search the graph.
+ *
+ * The graph also keeps a Zobrist key of its bond orders, updated with each bond
+ * change. The key does not depend on the order of the added bonds, so it is used
+ * to find the graphs whose equivalence classes are already calculated. A second
+ * key with other random values makes a 128 bit key for the expansion cache.
+ *
+ * The functions follow the ones of the Generator class for atom containers. The
+ * atom container of a molecule is only built for the structures written out.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.graph.invariant.Canon;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+public class MoleculeGraph {
+	//The highest bond order of CDK.
+	public static final int MAXORDER= 6;
+	private static final IBond.Order[] ORDERS= {null,IBond.Order.SINGLE,IBond.Order.DOUBLE,IBond.Order.TRIPLE,
+			IBond.Order.QUADRUPLE,IBond.Order.QUINTUPLE,IBond.Order.SEXTUPLE};
+	//The seed of the random values of the second key.
+	private static final long CHECKSEED= 0x2545F4914F6CDD1DL;
+
+	private final Atoms atoms;
+	private final int n;
+	private final byte[] orders;
+	private final int[] ordsum;
+	private final int[] component; //The smallest atom index of the component of each atom.
+	private int components;
+	private int bonds= 0; //The number of the bonded atom pairs.
+	private Constraints.Table constraints;
+	private long key= 0;
+	private long check= 0;
+
+	/**
+	 * The graph of the atom container, with its atoms and bonds.
+	 */
+	public MoleculeGraph(IAtomContainer mol) {
+		this.atoms= new Atoms(mol);
+		this.n= mol.getAtomCount();
+		this.orders= new byte[n*n];
+		this.ordsum= new int[n];
+		this.component= new int[n];
+		this.components= n;
+		for(int i=0;i<n;i++) component[i]= i;
+		for(IBond bond: mol.bonds()) {
+			int u= mol.indexOf(bond.getAtom(0));
+			int v= mol.indexOf(bond.getAtom(1));
+			for(int i=0;i<bond.getOrder().numeric();i++) {
+				bondadder(u,v);
+			}
+		}
+	}
+
+	/**
+	 * The copy of the graph. The atom information is shared.
+	 */
+	public MoleculeGraph(MoleculeGraph mol) {
+		this.atoms= mol.atoms;
+		this.n= mol.n;
+		this.orders= mol.orders.clone();
+		this.ordsum= mol.ordsum.clone();
+		this.component= mol.component.clone();
+		this.components= mol.components;
+		this.bonds= mol.bonds;
+		this.constraints= mol.constraints;
+		this.key= mol.key;
+		this.check= mol.check;
+	}
+
+	public int atomcount() {
+		return n;
+	}
+
+	public String symbol(int i) {
+		return atoms.symbols[i];
+	}
+
+	/**
+	 * The code of the element of the atom, see AtomTypes.
+	 */
+	public int code(int i) {
+		return atoms.codes[i];
+	}
+
+	public int hydrogens(int i) {
+		return atoms.hydrogens[i];
+	}
+
+	public int valence(int i) {
+		return atoms.valences[i];
+	}
+
+	public int order(int i, int j) {
+		return orders[i*n+j];
+	}
+
+	//Summation of the connected bond orders.
+	public int ordsum(int i) {
+		return ordsum[i];
+	}
+
+	//Saturation checker, true if the atom can have more bonds.
+	public boolean satcheck(int i) {
+		return atoms.hydrogens[i]+ordsum[i] < atoms.valences[i];
+	}
+
+	// Counting open sites of atoms.
+	public int opencounter(int i) {
+		return atoms.valences[i]-ordsum[i]-atoms.hydrogens[i];
+	}
+
+	/**
+	 * Adds a single bond between the atoms or increases the order of their bond.
+	 */
+	public void bondadder(int i, int j) {
+		int order= orders[i*n+j];
+		key^= zobrist(i,j,order,0)^zobrist(i,j,order+1,0);
+		check^= zobrist(i,j,order,CHECKSEED)^zobrist(i,j,order+1,CHECKSEED);
+		if(order==0) bonds++;
+		orders[i*n+j]++;
+		orders[j*n+i]++;
+		ordsum[i]++;
+		ordsum[j]++;
+		if(component[i]!=component[j]) {
+			int from= Math.max(component[i],component[j]);
+			int to= Math.min(component[i],component[j]);
+			for(int k=0;k<n;k++) {
+				if(component[k]==from) component[k]= to;
+			}
+			components--;
+		}
+	}
+
+	/**
+	 * Decreases the order of the bond between the atoms, removing it if it was single.
+	 */
+	public void bondremover(int i, int j) {
+		int order= orders[i*n+j];
+		key^= zobrist(i,j,order,0)^zobrist(i,j,order-1,0);
+		check^= zobrist(i,j,order,CHECKSEED)^zobrist(i,j,order-1,CHECKSEED);
+		orders[i*n+j]--;
+		orders[j*n+i]--;
+		ordsum[i]--;
+		ordsum[j]--;
+		if(orders[i*n+j]==0) {
+			bonds--;
+			recount();
+		}
+	}
+
+	/**
+	 * Calculates the components after a removed bond, with a search from each atom not visited yet.
+	 */
+	private void recount() {
+		java.util.Arrays.fill(component,-1);
+		components= 0;
+		int[] queue= new int[n];
+		for(int s=0;s<n;s++) {
+			if(component[s]!=-1) continue;
+			components++;
+			int head= 0, tail= 0;
+			queue[tail++]= s;
+			component[s]= s;
+			while(head<tail) {
+				int i= queue[head++];
+				for(int j=0;j<n;j++) {
+					if(orders[i*n+j]!=0 && component[j]==-1) {
+						component[j]= s;
+						queue[tail++]= j;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The constraints of the structures, checked by atomext before adding a bond. The copies
+	 * of the graph have the same constraints. Null for no constraints.
+	 */
+	public void constraints(Constraints constraints) {
+		this.constraints= constraints==null ? null : constraints.table(this);
+	}
+
+	/**
+	 * True if the constraints allow a bond unit between the atoms.
+	 */
+	boolean allows(int i, int j) {
+		return constraints==null || constraints.allows(this,i,j);
+	}
+
+	/**
+	 * True if no extension of the graph can meet the constraints.
+	 */
+	boolean prunable() {
+		return constraints!=null && constraints.prunable(this);
+	}
+
+	/**
+	 * True if the graph meets the constraints checked on the complete structures.
+	 */
+	public boolean accepted() {
+		return constraints==null || constraints.accepts(this);
+	}
+
+	/**
+	 * The number of the bonded atoms of the atom.
+	 */
+	public int degree(int i) {
+		int degree= 0;
+		for(int j=0;j<n;j++) {
+			if(orders[i*n+j]!=0) degree++;
+		}
+		return degree;
+	}
+
+	/**
+	 * The number of the rings, the bonds not needed to connect the components.
+	 */
+	public int rings() {
+		return bonds-n+components;
+	}
+
+	/**
+	 * The Zobrist key of the bond orders: the xor of the random values of the atom pairs with
+	 * their orders. Equal graphs have equal keys.
+	 */
+	public long key() {
+		return key;
+	}
+
+	/**
+	 * The second key of the bond orders, from other random values than the first one.
+	 */
+	public long check() {
+		return check;
+	}
+
+	private static long zobrist(int i, int j, int order, long seed) {
+		if(order==0) return 0;
+		long x= (((long)Math.min(i,j)<<40 | (long)Math.max(i,j)<<8 | order)^seed)*0x9E3779B97F4A7C15L;
+		x= (x^(x>>>30))*0xBF58476D1CE4E5B9L;
+		x= (x^(x>>>27))*0x94D049BB133111EBL;
+		return x^(x>>>31);
+	}
+
+	/**
+	 * True if the graph has the given bond order matrix.
+	 */
+	boolean sameorders(byte[] other) {
+		return java.util.Arrays.equals(orders,other);
+	}
+
+	byte[] orders() {
+		return orders;
+	}
+
+	/**
+	 * The adjacency list of the atoms, as GraphUtil.toAdjList.
+	 */
+	public int[][] adjlist() {
+		int[][] adj= new int[n][];
+		for(int i=0;i<n;i++) {
+			int degree= 0;
+			for(int j=0;j<n;j++) {
+				if(orders[i*n+j]!=0) degree++;
+			}
+			adj[i]= new int[degree];
+			degree= 0;
+			for(int j=0;j<n;j++) {
+				if(orders[i*n+j]!=0) adj[i][degree++]= j;
+			}
+		}
+		return adj;
+	}
+
+	//The CDK canon symmetry values, as canonsym. The atoms are read from the shared container without bonds.
+	public long[] canonsym() {
+		return Canon.symmetry(atoms.container,adjlist());
+	}
+
+	/**
+	 * The equivalence classes of the unsaturated atoms, as ecenumlist. The classes are taken from
+	 * the symmetry class cache shared by the graphs of the same input; they must not be modified.
+	 */
+	public int[][] ecenumlist() {
+		return atoms.symmetry.classes(this);
+	}
+
+	/**
+	 * The symmetry class cache of the graphs of the same input.
+	 */
+	public SymmetryClasses symmetry() {
+		return atoms.symmetry;
+	}
+
+	/**
+	 * The target atom of the class for the index, as targetatom: the next atom of the index in its
+	 * own class, or the first atom of another class.
+	 */
+	public static int targetatom(int[] members, int index) {
+		if(members.length>1) {
+			for(int k=0;k<members.length;k++) {
+				if(members[k]==index) {
+					return k!=members.length-1 ? members[k+1] : members[k-1];
+				}
+			}
+		}
+		return members[0];
+	}
+
+	/**
+	 * The extensions of the graph from the index, as atomext: a bond to the target atom of each
+	 * equivalence class. The extensions are the copies of the graph; the graph is not modified.
+	 * The bonds not allowed by the constraints are not added.
+	 */
+	public List<MoleculeGraph> atomext(int index, List<MoleculeGraph> extensions) {
+		if(!satcheck(index)) return extensions;
+		for(int[] members: ecenumlist()) {
+			int target= targetatom(members,index);
+			if(index!=target && satcheck(target) && order(index,target)<MAXORDER) {
+				if(!allows(index,target)) continue;
+				MoleculeGraph ext= new MoleculeGraph(this);
+				ext.bondadder(index,target);
+				if(ext.prunable()) continue;
+				extensions.add(ext);
+			}
+		}
+		return extensions;
+	}
+
+	public List<MoleculeGraph> atomext(int index) {
+		return atomext(index,new ArrayList<MoleculeGraph>());
+	}
+
+	/**
+	 * True if all the atoms are in one component.
+	 */
+	public boolean connected() {
+		return components<=1;
+	}
+
+	/**
+	 * The smallest atom index of the component of the atom.
+	 */
+	int component(int i) {
+		return component[i];
+	}
+
+	/**
+	 * The number of components.
+	 */
+	public int components() {
+		return components;
+	}
+
+	/**
+	 * The pruning bound of the generators. The bonds are only added, from the atoms of the
+	 * indices to the atoms with open sites. The extensions of the graph from the stage t are
+	 * made by the atoms of indices[t..], so they can only give a connected structure if
+	 *   each component has an open site,
+	 *   the open sites are enough for the c-1 bonds joining the c components, and
+	 *   the atoms of indices[t..] have at least c-1 open sites, one for each joining bond.
+	 * The first two do not depend on the stage and the last one only gets harder for the later
+	 * stages. Returns the last stage meeting the bound, the last stage for a connected graph and
+	 * -1 if the graph can never be connected.
+	 */
+	public int connectable(int[] indices) {
+		if(components<=1) return indices.length-1;
+		int[] open= new int[n];
+		int total= 0;
+		for(int i=0;i<n;i++) {
+			open[component[i]]+= opencounter(i);
+			total+= opencounter(i);
+		}
+		for(int i=0;i<n;i++) {
+			if(component[i]==i && open[i]==0) return -1;
+		}
+		if(total<2*(components-1)) return -1;
+		boolean[] counted= new boolean[n];
+		int sources= 0;
+		for(int t=indices.length-1;t>=0;t--) {
+			int i= indices[t];
+			if(!counted[i]) {
+				counted[i]= true;
+				sources+= opencounter(i);
+			}
+			if(sources>=components-1) return t;
+		}
+		return -1;
+	}
+
+	/**
+	 * The canonical hash of the connectivity, as CanonicalHash.hash for the atom container.
+	 */
+	public long[] hash() {
+		return CanonicalHash.hash(atoms.labels,adjlist(),null);
+	}
+
+	/**
+	 * The canonical hash with the bond orders. The canonical labels of the atoms are given in
+	 * the labelling array if it is not null.
+	 */
+	public long[] orderhash(long[] labelling) {
+		int[][] adj= adjlist();
+		int[][] ord= new int[n][];
+		for(int i=0;i<n;i++) {
+			ord[i]= new int[adj[i].length];
+			for(int j=0;j<adj[i].length;j++) {
+				ord[i][j]= orders[i*n+adj[i][j]];
+			}
+		}
+		return CanonicalHash.hash(atoms.labels,adj,ord,labelling);
+	}
+
+	/**
+	 * True if all the atoms are saturated.
+	 */
+	public boolean saturated() {
+		for(int i=0;i<n;i++) {
+			if(satcheck(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the atom container of the graph.
+	 */
+	public IAtomContainer container() {
+		IAtomContainer ac= new org.openscience.cdk.silent.AtomContainer();
+		for(int i=0;i<n;i++) {
+			ac.addAtom(new org.openscience.cdk.silent.Atom(atoms.symbols[i]));
+			ac.getAtom(i).setImplicitHydrogenCount(atoms.hydrogens[i]);
+		}
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				if(orders[i*n+j]!=0) ac.addBond(i,j,ORDERS[orders[i*n+j]]);
+			}
+		}
+		return ac;
+	}
+
+	/**
+	 * The atom information shared by the graphs of the same input.
+	 */
+	private static final class Atoms {
+		final String[] symbols;
+		final int[] hydrogens;
+		final int[] valences;
+		final int[] codes;
+		final long[] labels;
+		final IAtomContainer container;
+		final SymmetryClasses symmetry= new SymmetryClasses();
+
+		Atoms(IAtomContainer mol){
+			int n= mol.getAtomCount();
+			symbols= new String[n];
+			hydrogens= new int[n];
+			valences= new int[n];
+			codes= new int[n];
+			labels= new long[n];
+			container= new org.openscience.cdk.silent.AtomContainer();
+			for(int i=0;i<n;i++) {
+				symbols[i]= mol.getAtom(i).getSymbol();
+				hydrogens[i]= mol.getAtom(i).getImplicitHydrogenCount();
+				valences[i]= AtomTypes.DEFAULT.valence(mol.getAtom(i));
+				codes[i]= AtomTypes.code(symbols[i]);
+				labels[i]= CanonicalHash.atomlabel(mol.getAtom(i));
+				container.addAtom(new org.openscience.cdk.silent.Atom(symbols[i]));
+				container.getAtom(i).setImplicitHydrogenCount(hydrogens[i]);
+			}
+		}
+	}
+}
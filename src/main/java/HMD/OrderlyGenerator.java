@@ -0,0 +1,314 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The orderly generation of the connected, saturated structures of the input by
+ * canonical augmentation [1]. The structures are built by adding one bond unit at a
+ * time, a new single bond or a higher order of a bond, and each structure is accepted
+ * only from its canonical parent: the structure without its canonical bond unit.
+ * The canonical bond unit is the one between the atoms with the highest canonical
+ * labels. An extension is accepted if removing its canonical bond unit gives a
+ * structure isomorphic to its parent; the isomorphic extensions of the same parent
+ * are checked among the siblings. Thus, each structure is generated exactly once and
+ * there is no global duplicate check: the memory does not grow with the output and
+ * the branches are extended in parallel without shared state.
+ *
+ * The canonical forms are the canonical hashes with the bond orders. Unlike genall,
+ * only the structures where all the atoms are saturated are generated, and the
+ * structures differing only in the positions of the multiple bonds are different
+ * structures. The extensions which can not be completed to a connected, saturated
+ * structure are pruned.
+ *
+ * [1] McKay, Brendan D. "Isomorph-free exhaustive generation." Journal of Algorithms
+ * 26.2 (1998): 306-324.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class OrderlyGenerator {
+	//The extensions with fewer bond units are extended by separate tasks.
+	private static final int FORKDEPTH= 4;
+
+	private final ForkJoinPool pool;
+	private final Metrics metrics= new Metrics();
+	private StructureSink sink;
+	private GraphSink graphs;
+	private Constraints constraints;
+	private AtomicBoolean cancelled= new AtomicBoolean();
+
+	public OrderlyGenerator(int threads) {
+		this.pool= new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Generates the structures of the molecule and passes them to the sink, from one thread at
+	 * a time. Returns the number of the structures.
+	 */
+	public long generate(IAtomContainer mol, StructureSink sink) throws CDKException, IOException {
+		this.sink= sink;
+		this.graphs= null;
+		return generate(mol);
+	}
+
+	/**
+	 * Same as generate but the graphs of the structures are passed to the sink; their atom
+	 * containers are not built.
+	 */
+	public long enumerate(IAtomContainer mol, GraphSink sink) throws CDKException, IOException {
+		this.sink= null;
+		this.graphs= sink;
+		return generate(mol);
+	}
+
+	private long generate(IAtomContainer mol) throws CDKException, IOException {
+		MoleculeGraph root= new MoleculeGraph(mol);
+		root.constraints(constraints);
+		metrics.symmetry(root.symmetry());
+		try {
+			if(completable(root)) {
+				if(root.saturated()) {
+					write(root);
+				}else {
+					pool.invoke(new Extension(root,root.orderhash(null),0));
+				}
+			}
+		}catch(TaskException e) {
+			Throwable cause= e.getCause();
+			if(cause instanceof CDKException) throw (CDKException) cause;
+			throw (IOException) cause;
+		}finally {
+			metrics.finish();
+		}
+		return metrics.getWritten();
+	}
+
+	/**
+	 * The metrics of the generation. The rejected and the isomorphic extensions are counted
+	 * as duplicates.
+	 */
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * The constraints of the structures, see Constraints. The bonds not allowed are not added,
+	 * so the structures are still generated from their canonical parents.
+	 */
+	public void constraints(Constraints constraints) {
+		this.constraints= constraints;
+	}
+
+	/**
+	 * The flag cancelling the generation, shared with the caller; see cancel.
+	 */
+	public void cancellation(AtomicBoolean cancelled) {
+		this.cancelled= cancelled;
+	}
+
+	/**
+	 * Stops the generation at its next expansion; the generation throws a CancellationException.
+	 */
+	public void cancel() {
+		cancelled.set(true);
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Adds a bond unit to each pair of unsaturated atoms and extends the accepted extensions
+	 * further. The extensions of the first bond units are extended in parallel.
+	 */
+	private void extend(MoleculeGraph mol, long[] hash, int depth) throws CDKException, IOException {
+		if(cancelled.get()) throw new CancellationException("The generation is cancelled");
+		metrics.expansions.increment();
+		int n= mol.atomcount();
+		LongHashSet siblings= new LongHashSet(16);
+		List<Extension> tasks= depth<FORKDEPTH ? new ArrayList<Extension>() : null;
+		long[] labels= new long[n];
+		for(int i=0;i<n;i++) {
+			if(!mol.satcheck(i)) continue;
+			for(int j=i+1;j<n;j++) {
+				if(!mol.satcheck(j) || mol.order(i,j)>=MoleculeGraph.MAXORDER || !mol.allows(i,j)) continue;
+				MoleculeGraph ext= new MoleculeGraph(mol);
+				ext.bondadder(i,j);
+				metrics.extensions.increment();
+				if(!completable(ext) || ext.prunable()) {
+					metrics.pruned.increment();
+					continue;
+				}
+				long[] exthash= ext.orderhash(labels);
+				if(!siblings.add(exthash[0],exthash[1]) || !canonical(ext,labels,i,j,hash)) {
+					metrics.duplicates.increment();
+					continue;
+				}
+				if(ext.saturated()) {
+					write(ext);
+				}else if(tasks!=null) {
+					tasks.add(new Extension(ext,exthash,depth+1));
+				}else {
+					extend(ext,exthash,depth+1);
+				}
+			}
+		}
+		if(tasks!=null) RecursiveAction.invokeAll(tasks);
+	}
+
+	/**
+	 * True if the parent of the extension is isomorphic to the structure without the canonical
+	 * bond unit of the extension. The bond unit (i,j) is the last added one.
+	 */
+	static boolean canonical(MoleculeGraph ext, long[] labels, int i, int j, long[] parenthash) {
+		int n= ext.atomcount();
+		int u= -1, v= -1;
+		long best= -1;
+		for(int a=0;a<n;a++) {
+			for(int b=a+1;b<n;b++) {
+				if(ext.order(a,b)==0) continue;
+				long key= Math.max(labels[a],labels[b])<<32 | Math.min(labels[a],labels[b]);
+				if(key>best) {
+					best= key;
+					u= a;
+					v= b;
+				}
+			}
+		}
+		if(u==i && v==j) return true;
+		MoleculeGraph parent= new MoleculeGraph(ext);
+		parent.bondremover(u,v);
+		return Arrays.equals(parent.orderhash(null),parenthash);
+	}
+
+	/**
+	 * False if the structure can not be completed to a connected, saturated structure: the open
+	 * sites of each atom should be fillable by the others, the open sites should be even, and
+	 * each component should have open sites for the bonds joining the components.
+	 */
+	static boolean completable(MoleculeGraph mol) {
+		int n= mol.atomcount();
+		int total= 0;
+		for(int i=0;i<n;i++) {
+			int open= mol.opencounter(i);
+			if(open<0) return false;
+			total+= open;
+			if(open>0) {
+				int capacity= 0;
+				for(int j=0;j<n && capacity<open;j++) {
+					if(j!=i) capacity+= Math.min(mol.opencounter(j),MoleculeGraph.MAXORDER-mol.order(i,j));
+				}
+				if(capacity<open) return false;
+			}
+		}
+		if(total%2!=0) return false;
+		int components= mol.components();
+		if(components>1) {
+			if(total/2<components-1) return false;
+			int[] open= new int[n];
+			for(int i=0;i<n;i++) {
+				open[mol.component(i)]+= mol.opencounter(i);
+			}
+			for(int i=0;i<n;i++) {
+				if(mol.component(i)==i && open[i]==0) return false;
+			}
+		}
+		return true;
+	}
+
+	private void write(MoleculeGraph ac) throws CDKException, IOException {
+		metrics.saturated.increment();
+		if(!ac.accepted()) {
+			metrics.rejected.increment();
+			return;
+		}
+		metrics.unique.increment();
+		if(graphs!=null) {
+			synchronized(graphs) {
+				long start= System.nanoTime();
+				graphs.write(ac);
+				metrics.outputnanos.add(System.nanoTime()-start);
+			}
+			metrics.written.increment();
+			return;
+		}
+		IAtomContainer mol= ac.container();
+		metrics.containers.increment();
+		synchronized(sink) {
+			long start= System.nanoTime();
+			sink.write(mol);
+			metrics.outputnanos.add(System.nanoTime()-start);
+		}
+		metrics.written.increment();
+	}
+
+	/**
+	 * The task extending an accepted extension.
+	 */
+	private class Extension extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final MoleculeGraph mol;
+		private final long[] hash;
+		private final int depth;
+
+		Extension(MoleculeGraph mol, long[] hash, int depth){
+			this.mol= mol;
+			this.hash= hash;
+			this.depth= depth;
+		}
+
+		protected void compute() {
+			try {
+				extend(mol,hash,depth);
+			}catch(CDKException | IOException e) {
+				throw new TaskException(e);
+			}
+		}
+	}
+
+	/**
+	 * Carries the checked exceptions of the tasks back to the caller of generate.
+	 */
+	private static class TaskException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		TaskException(Exception cause){
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * This class is the parallel version of the genall function. The saturation of
+ * an index (atomsat) is split into fork-join tasks, one for each extension built
+ * by atomext, and the tasks are scheduled on a work-stealing pool.
+ *
+ * In genall, the saturated structures of an index are added to the molecule list
+ * and extended again for the next indices. Here, a saturated structure directly
+ * forks the tasks of the next indices. Thus, the same extensions are performed
+ * without sharing the lists between the threads. Each task has its own extension
+ * list and the duplicates are checked by a thread-safe deduplicator. The search runs
+ * on the bond order matrices of MoleculeGraph; the atom containers are only built
+ * for the unique structures.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+public class ParallelGenerator {
+	private final ForkJoinPool pool;
+	private final Deduplicator uniquecheck;
+	private final Metrics metrics= new Metrics();
+	private int[] indices;
+	private StructureSink sink;
+	private GraphSink graphs;
+	private boolean pruning= true;
+	private boolean complete= false;
+	private ExpansionCache cache= new ExpansionCache();
+	private Constraints constraints;
+	private AtomicBoolean cancelled= new AtomicBoolean();
+
+	/**
+	 * The duplicates are checked with the canonical hashes.
+	 */
+	public ParallelGenerator(int threads) {
+		this(threads,new CanonicalDeduplicator());
+	}
+
+	public ParallelGenerator(int threads, Deduplicator uniquecheck) {
+		this.pool= new ForkJoinPool(threads);
+		this.uniquecheck= uniquecheck;
+	}
+
+	/**
+	 * Saturates the indices of the molecule in the given order, like genall, and writes the
+	 * unique connected structures to the output file. Returns the number of written structures.
+	 */
+	public int genall(IAtomContainer mol, List<Integer> indices, SDFWriter outFile) throws CloneNotSupportedException, CDKException, IOException {
+		return genall(mol,indices,new SDFSink(outFile));
+	}
+
+	/**
+	 * Same as genall but the unique structures are passed to the sink. The sink is called from
+	 * one thread at a time.
+	 */
+	public int genall(IAtomContainer mol, List<Integer> indices, StructureSink sink) throws CloneNotSupportedException, CDKException, IOException {
+		return genall(mol,indices,sink,null);
+	}
+
+	/**
+	 * Same as genall but only the work units of the shard are generated, if the shard is given.
+	 */
+	public int genall(IAtomContainer mol, List<Integer> indices, StructureSink sink, Shard shard) throws CloneNotSupportedException, CDKException, IOException {
+		this.sink= sink;
+		this.graphs= null;
+		return generate(mol,indices,shard);
+	}
+
+	/**
+	 * Same as genall but the graphs of the structures are passed to the sink; their atom
+	 * containers are not built.
+	 */
+	public int enumerate(IAtomContainer mol, List<Integer> indices, GraphSink sink, Shard shard) throws CloneNotSupportedException, CDKException, IOException {
+		this.sink= null;
+		this.graphs= sink;
+		return generate(mol,indices,shard);
+	}
+
+	private int generate(IAtomContainer mol, List<Integer> indices, Shard shard) throws CloneNotSupportedException, CDKException, IOException {
+		this.indices= new int[indices.size()];
+		for(int i=0;i<indices.size();i++) {
+			this.indices[i]=indices.get(i);
+		}
+		MoleculeGraph graph= new MoleculeGraph(mol);
+		graph.constraints(constraints);
+		metrics.symmetry(graph.symmetry());
+		metrics.cache(cache);
+		try {
+			if(shard==null) {
+				pool.invoke(new Stages(graph,0,this.indices.length-1));
+			}else {
+				shard.split(graph,this.indices);
+				for(MoleculeGraph ac: shard.saturated) {
+					write(ac);
+				}
+				pool.invoke(new Units(shard));
+			}
+		}catch(TaskException e) {
+			Throwable cause= e.getCause();
+			if(cause instanceof CDKException) throw (CDKException) cause;
+			throw (IOException) cause;
+		}finally {
+			metrics.finish();
+		}
+		return (int)uniquecheck.size();
+	}
+
+	/**
+	 * The metrics of the generation, updated while generating.
+	 */
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * The extensions which can never give a connected structure are not extended further, as
+	 * in the streaming generator. It is on by default.
+	 */
+	public void pruning(boolean pruning) {
+		this.pruning= pruning;
+	}
+
+	/**
+	 * Only the structures with all their atoms saturated are written if complete is true, as
+	 * for the formulas. See StreamingGenerator.
+	 */
+	public void complete(boolean complete) {
+		this.complete= complete;
+	}
+
+	/**
+	 * The constraints of the structures, see Constraints.
+	 */
+	public void constraints(Constraints constraints) {
+		this.constraints= constraints;
+	}
+
+	/**
+	 * The cache of the expanded extensions, shared by the tasks.
+	 */
+	public void cache(ExpansionCache cache) {
+		this.cache= cache;
+	}
+
+	/**
+	 * The flag cancelling the generation, shared with the caller; see cancel.
+	 */
+	public void cancellation(AtomicBoolean cancelled) {
+		this.cancelled= cancelled;
+	}
+
+	/**
+	 * Stops the generation at its next expansion; the generation throws a CancellationException.
+	 */
+	public void cancel() {
+		cancelled.set(true);
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The saturated structure is written to the sink if it is connected and not
+	 * generated before.
+	 */
+	private void write(MoleculeGraph ac) throws CDKException, IOException {
+		metrics.saturated.increment();
+		if(!ac.connected()) {
+			metrics.disconnected.increment();
+			return;
+		}
+		if(!ac.accepted() || (complete && !ac.saturated())) {
+			metrics.rejected.increment();
+			return;
+		}
+		long start= System.nanoTime();
+		boolean unique= uniquecheck.add(ac);
+		metrics.dedupnanos.add(System.nanoTime()-start);
+		if(!unique) {
+			metrics.duplicates.increment();
+			return;
+		}
+		metrics.unique.increment();
+		if(graphs!=null) {
+			synchronized(graphs) {
+				start= System.nanoTime();
+				graphs.write(ac);
+				metrics.outputnanos.add(System.nanoTime()-start);
+			}
+			metrics.written.increment();
+			return;
+		}
+		IAtomContainer mol= ac.container();
+		metrics.containers.increment();
+		synchronized(sink) {
+			start= System.nanoTime();
+			sink.write(mol);
+			metrics.outputnanos.add(System.nanoTime()-start);
+		}
+		metrics.written.increment();
+	}
+
+	/**
+	 * The task starting the saturation of the indices from the given stage to the last one.
+	 */
+	private class Stages extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final MoleculeGraph mol;
+		private final int stage;
+		private final int last;
+
+		Stages(MoleculeGraph mol, int stage, int last){
+			this.mol= mol;
+			this.stage= stage;
+			this.last= last;
+		}
+
+		protected void compute() {
+			List<Saturation> tasks= new ArrayList<Saturation>();
+			for(int i=stage;i<=last;i++) {
+				if(cache.visit(mol,i)) tasks.add(new Saturation(mol,i));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * The task starting the saturation of the work units of a shard.
+	 */
+	private class Units extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Shard shard;
+
+		Units(Shard shard){
+			this.shard= shard;
+		}
+
+		protected void compute() {
+			List<Saturation> tasks= new ArrayList<Saturation>();
+			for(int u=0;u<shard.graphs.size();u++) {
+				tasks.add(new Saturation(shard.graphs.get(u),shard.stages.get(u)));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * The task extending the molecule from the index of the stage, like atomsat. The
+	 * extensions which are not saturated yet are extended by the subtasks.
+	 */
+	private class Saturation extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final MoleculeGraph mol;
+		private final int stage;
+
+		Saturation(MoleculeGraph mol, int stage){
+			this.mol= mol;
+			this.stage= stage;
+		}
+
+		protected void compute() {
+			if(cancelled.get()) throw new CancellationException("The generation is cancelled");
+			List<RecursiveAction> tasks= new ArrayList<RecursiveAction>();
+			int index= indices[stage];
+			try {
+				List<MoleculeGraph> extensions= mol.atomext(index);
+				metrics.expansions.increment();
+				metrics.extensions.add(extensions.size());
+				for(MoleculeGraph ac: extensions) {
+					if(ac.satcheck(index)) {
+						if(pruning && ac.connectable(indices)<stage) {
+							metrics.pruned.increment();
+						}else if(cache.visit(ac,stage)) {
+							tasks.add(new Saturation(ac,stage));
+						}
+					}else {
+						if(cache.visit(ac,-1)) write(ac);
+						int last= pruning ? ac.connectable(indices) : indices.length-1;
+						metrics.pruned.add(indices.length-1-Math.max(last,stage));
+						if(stage+1<=last) {
+							tasks.add(new Stages(ac,stage+1,last));
+						}
+					}
+				}
+			}catch(CDKException | IOException e) {
+				throw new TaskException(e);
+			}
+			metrics.pending= getQueuedTaskCount();
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Carries the checked exceptions of the tasks back to the caller of genall.
+	 */
+	private static class TaskException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		TaskException(Exception cause){
+			super(cause);
+		}
+	}
+}
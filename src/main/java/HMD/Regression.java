@@ -0,0 +1,254 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The regression and scaling suite of the generator. The structures of a ladder of
+ * molecular formulas are generated and their numbers are compared with the published
+ * numbers of constitutional isomers: the alkanes from C4 to C12 and formulas with the
+ * N, O, S, P and halogen atoms of the valence table, saturated and unsaturated.
+ *
+ * Both modes are checked for all the formulas; a formula run writes only the structures
+ * where every atom is saturated. The duplicate check of the default mode compares the
+ * connectivities without the bond orders, so the isomers differing only in the positions
+ * of their multiple bonds are kept once: C6H6 gives 212 of its 217 isomers, the number of
+ * their distinct connectivities. Such runs are listed in the ladder as known failures;
+ * they are reported but do not fail the suite, and a known failure giving the expected
+ * number is reported as fixed. For each run, the wall time, the
+ * peak heap and the structures per second are recorded and all the results are written
+ * as a JSON report. The report shows where the scaling breaks, and a change making the
+ * generation faster but wrong fails the suite.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openscience.cdk.exception.CDKException;
+
+public class Regression {
+	/**
+	 * The formulas and their published numbers of constitutional isomers, with the mode of
+	 * a known failure as the third item.
+	 */
+	public static final String[][] LADDER= {
+			{"C4H10","2"},{"C5H12","3"},{"C6H14","5"},{"C7H16","9"},{"C8H18","18"},
+			{"C9H20","35"},{"C10H22","75"},{"C11H24","159"},{"C12H26","355"},
+			{"C2H6O","2"},{"C3H8O","3"},{"C4H10O","7"},{"C5H12O","14"},
+			{"C2H7N","2"},{"C3H9N","4"},{"C4H11N","8"},
+			{"C3H8S","3"},{"C4H10S","7"},{"C2H7P","2"},
+			{"C2H3F3","2"},{"C4H9Cl","4"},{"C3H6Cl2","4"},{"C3H7Br","2"},{"C3H7I","2"},
+			{"C3H6","2"},{"C4H8","5"},{"C5H10","10"},{"C6H12","25"},{"C4H6","9"},
+			{"C2H4O","3"},{"C3H6O","9"},{"C6H6","217","default"}
+	};
+
+	/**
+	 * The result of a formula in a mode. The expected number is -1 if it is not checked.
+	 * A known failure does not fail the suite.
+	 */
+	public static class Result {
+		public final String formula;
+		public final boolean orderly;
+		public final long expected;
+		public final long count;
+		public final double seconds;
+		public final long peakheap;
+		public final boolean known;
+
+		Result(String formula, boolean orderly, long expected, boolean known, long count, double seconds, long peakheap){
+			this.formula= formula;
+			this.orderly= orderly;
+			this.expected= expected;
+			this.known= known;
+			this.count= count;
+			this.seconds= seconds;
+			this.peakheap= peakheap;
+		}
+
+		public boolean passed() {
+			return expected<0 || expected==count;
+		}
+
+		/**
+		 * ok or failed, and known or fixed for a known failure.
+		 */
+		public String status() {
+			if(known) return passed() ? "fixed" : "known";
+			return passed() ? "ok" : "failed";
+		}
+
+		public double rate() {
+			return seconds>0 ? count/seconds : 0;
+		}
+
+		public String toJson() {
+			return "{\"formula\":\""+formula+"\",\"mode\":\""+(orderly ? "orderly" : "default")
+					+"\",\"expected\":"+(expected<0 ? "null" : String.valueOf(expected))
+					+",\"count\":"+count+",\"passed\":"+passed()+",\"status\":\""+status()+"\""
+					+",\"seconds\":"+String.format(Locale.ROOT,"%.3f",seconds)
+					+",\"peakHeapBytes\":"+peakheap
+					+",\"structuresPerSecond\":"+String.format(Locale.ROOT,"%.1f",rate())+"}";
+		}
+
+		public String toString() {
+			DecimalFormat d= new DecimalFormat("0.###");
+			return formula+"\t"+(orderly ? "orderly" : "default")+"\t"+count+"\t"+(expected<0 ? "-" : String.valueOf(expected))
+					+"\t"+d.format(seconds)+" s\t"+(peakheap>>20)+" MB\t"+(status().equals("failed") ? "FAILED" : status());
+		}
+	}
+
+	/**
+	 * Generates the structures of the formula in the mode and records the count, the time and
+	 * the peak heap. The peak heap is the sum of the peaks of the heap pools during the run.
+	 */
+	public static Result run(String formula, long expected, boolean known, boolean orderly, int threads) throws CloneNotSupportedException, CDKException, IOException {
+		List<MemoryPoolMXBean> pools= new ArrayList<MemoryPoolMXBean>();
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType()==MemoryType.HEAP && pool.isValid()) pools.add(pool);
+		}
+		System.gc();
+		for(MemoryPoolMXBean pool: pools) {
+			pool.resetPeakUsage();
+		}
+		GeneratorSession session= GeneratorSession.builder(formula)
+				.formula(true)
+				.orderly(orderly)
+				.threads(threads)
+				.graphs(GraphSink.NONE)
+				.build();
+		long start= System.nanoTime();
+		long count= session.generate();
+		double seconds= (System.nanoTime()-start)/1e9;
+		long peak= 0;
+		for(MemoryPoolMXBean pool: pools) {
+			peak+= pool.getPeakUsage().getUsed();
+		}
+		return new Result(formula,orderly,expected,known,count,seconds,peak);
+	}
+
+	/**
+	 * Runs the formulas of the cases, given with their expected numbers or -1 and the modes of
+	 * their known failures, in both modes. The results are also printed to the log if it is
+	 * not null.
+	 */
+	public static List<Result> run(String[][] cases, int threads, PrintStream log) throws CloneNotSupportedException, CDKException, IOException {
+		List<Result> results= new ArrayList<Result>();
+		for(String[] c: cases) {
+			long expected= c.length>1 ? Long.parseLong(c[1]) : -1;
+			for(boolean orderly: new boolean[] {true,false}) {
+				boolean known= c.length>2 && c[2].equals(orderly ? "orderly" : "default");
+				Result result= run(c[0],expected,known,orderly,threads);
+				if(log!=null) log.println(result);
+				results.add(result);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Whether no result failed, the known failures apart.
+	 */
+	public static boolean passed(List<Result> results) {
+		for(Result result: results) {
+			if(!result.passed() && !result.known) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The report of the results with the settings of the run.
+	 */
+	public static String toJson(List<Result> results, int threads) {
+		StringBuilder json= new StringBuilder("{");
+		json.append("\"java\":\"").append(System.getProperty("java.version")).append("\",");
+		json.append("\"processors\":").append(Runtime.getRuntime().availableProcessors()).append(',');
+		json.append("\"maxHeapBytes\":").append(Runtime.getRuntime().maxMemory()).append(',');
+		json.append("\"threads\":").append(threads).append(',');
+		json.append("\"passed\":").append(passed(results)).append(',');
+		json.append("\"results\":[");
+		for(int i=0;i<results.size();i++) {
+			if(i>0) json.append(',');
+			json.append("\n").append(results.get(i).toJson());
+		}
+		return json.append("\n]}").toString();
+	}
+
+	/**
+	 * The cases of a list like "C6H14=5,C6H6=217=default,C7H16O"; the formulas without a number
+	 * are not checked and the mode after the number is the one of a known failure.
+	 */
+	static String[][] cases(String list) {
+		String[] items= list.split(",");
+		String[][] cases= new String[items.length][];
+		for(int i=0;i<items.length;i++) {
+			cases[i]= items[i].trim().split("=");
+		}
+		return cases;
+	}
+
+	public static void main(String[] args) throws CloneNotSupportedException, CDKException, IOException {
+		Options options = new Options();
+		options.addOption(Option.builder("t").hasArg().longOpt("threads").desc("Number of threads of the generation (default 1)").build());
+		options.addOption(Option.builder("o").hasArg().longOpt("output").desc("File of the JSON report (default regression.json)").build());
+		options.addOption(Option.builder("f").hasArg().longOpt("formulas").desc("Formulas instead of the ladder, with their expected numbers, like C6H14=5,C6H6=217").build());
+		CommandLine cmd;
+		try {
+			cmd = new DefaultParser().parse(options, args);
+		}catch(ParseException e) {
+			new HelpFormatter().printHelp("java -cp HMD.jar HMD.Regression",
+					"\nChecks the numbers of structures of a ladder of formulas and reports the time and memory of each one.\n\n",options,"");
+			return;
+		}
+		int threads= Integer.parseInt(cmd.getOptionValue("threads","1"));
+		String[][] cases= cmd.hasOption("formulas") ? cases(cmd.getOptionValue("formulas")) : LADDER;
+		List<Result> results= run(cases,threads,System.out);
+		try(Writer out= new OutputStreamWriter(new FileOutputStream(cmd.getOptionValue("output","regression.json")),StandardCharsets.UTF_8)) {
+			out.write(toJson(results,threads));
+		}
+		if(!passed(results)) {
+			System.out.println("The numbers of structures of some formulas are not the expected ones.");
+			System.exit(1);
+		}
+	}
+}
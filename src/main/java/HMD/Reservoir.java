@@ -0,0 +1,91 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * A uniform random sample of the generated structures, by reservoir sampling: the
+ * first structures fill the reservoir, then the i-th structure replaces a random one
+ * of the reservoir with the probability size/i. Only the graphs of the sample are
+ * kept, so the memory does not depend on the number of the generated structures.
+ * With the same seed, the same generation gives the same sample.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.openscience.cdk.exception.CDKException;
+
+public class Reservoir implements GraphSink {
+	private final int size;
+	private final SplittableRandom random;
+	private final List<MoleculeGraph> samples;
+	private long seen= 0;
+
+	public Reservoir(int size, long seed) {
+		if(size<=0) throw new IllegalArgumentException("The sample size should be positive: "+size);
+		this.size= size;
+		//The seed is mixed, so the close seeds give independent samples.
+		this.random= new SplittableRandom(seed);
+		this.samples= new ArrayList<MoleculeGraph>(Math.min(size,1<<16));
+	}
+
+	public synchronized void write(MoleculeGraph mol) {
+		seen++;
+		if(samples.size()<size) {
+			samples.add(mol);
+		}else {
+			long i= random.nextLong(seen);
+			if(i<size) samples.set((int)i,mol);
+		}
+	}
+
+	/**
+	 * The number of the structures offered to the reservoir.
+	 */
+	public synchronized long seen() {
+		return seen;
+	}
+
+	public synchronized List<MoleculeGraph> samples() {
+		return new ArrayList<MoleculeGraph>(samples);
+	}
+
+	/**
+	 * Writes the atom containers of the sample to the sink. Returns the number of written
+	 * structures.
+	 */
+	public int output(StructureSink sink) throws CDKException, IOException {
+		List<MoleculeGraph> samples= samples();
+		for(MoleculeGraph mol: samples) {
+			sink.write(mol.container());
+		}
+		return samples.size();
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * A deterministic part of the search tree, for the generation in several processes.
+ * The extensions of the input are expanded breadth first, in the order of the
+ * generators, until there are at least UNITS work units for each shard. A work
+ * unit is an extension with the stage of its index, as on the stack of the streaming
+ * generator. The units are dealt round-robin to the shards; each process of the same
+ * input and number of shards calculates the same units and keeps its own.
+ *
+ * The structures saturated before the units belong to the first shard. Together,
+ * the shards generate all the structures of the input. The same structure can be
+ * generated in more than one shard, so the outputs are merged with a global
+ * duplicate check, see ShardMerger.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Shard {
+	public static final int UNITS= 16;
+
+	private final int shard;
+	private final int shards;
+	final List<MoleculeGraph> graphs= new ArrayList<MoleculeGraph>();
+	final List<Integer> stages= new ArrayList<Integer>();
+	final List<MoleculeGraph> saturated= new ArrayList<MoleculeGraph>();
+
+	/**
+	 * The shard k of N, numbered from 1.
+	 */
+	public Shard(int shard, int shards) {
+		if(shards<1 || shard<1 || shard>shards) {
+			throw new IllegalArgumentException("Invalid shard: "+shard+"/"+shards);
+		}
+		this.shard= shard;
+		this.shards= shards;
+	}
+
+	/**
+	 * The shard of the form k/N.
+	 */
+	public static Shard parse(String value) {
+		String[] parts= value.split("/");
+		if(parts.length!=2) {
+			throw new IllegalArgumentException("The shard is not of the form k/N: "+value);
+		}
+		return new Shard(Integer.parseInt(parts[0].trim()),Integer.parseInt(parts[1].trim()));
+	}
+
+	public int shard() {
+		return shard;
+	}
+
+	public int shards() {
+		return shards;
+	}
+
+	/**
+	 * Calculates the work units of the shard from the input graph and the indices.
+	 */
+	void split(MoleculeGraph root, int[] indices) {
+		List<MoleculeGraph> graphs= new ArrayList<MoleculeGraph>();
+		List<Integer> stages= new ArrayList<Integer>();
+		for(int i=0;i<indices.length;i++) {
+			graphs.add(root);
+			stages.add(i);
+		}
+		List<MoleculeGraph> saturated= new ArrayList<MoleculeGraph>();
+		while(!graphs.isEmpty() && graphs.size()<UNITS*shards) {
+			List<MoleculeGraph> nextgraphs= new ArrayList<MoleculeGraph>();
+			List<Integer> nextstages= new ArrayList<Integer>();
+			for(int u=0;u<graphs.size();u++) {
+				int stage= stages.get(u);
+				int index= indices[stage];
+				for(MoleculeGraph ac: graphs.get(u).atomext(index)) {
+					if(ac.satcheck(index)) {
+						nextgraphs.add(ac);
+						nextstages.add(stage);
+					}else {
+						saturated.add(ac);
+						for(int s=stage+1;s<indices.length;s++) {
+							nextgraphs.add(ac);
+							nextstages.add(s);
+						}
+					}
+				}
+			}
+			graphs= nextgraphs;
+			stages= nextstages;
+		}
+		this.graphs.clear();
+		this.stages.clear();
+		for(int u=shard-1;u<graphs.size();u+=shards) {
+			this.graphs.add(graphs.get(u));
+			this.stages.add(stages.get(u));
+		}
+		this.saturated.clear();
+		if(shard==1) this.saturated.addAll(saturated);
+	}
+
+	public String toString() {
+		return shard+"/"+shards;
+	}
+}
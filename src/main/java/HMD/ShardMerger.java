@@ -0,0 +1,154 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * Merges the sdf outputs of the shards of a generation into one sdf file. A
+ * structure generated in more than one shard is written once: the structures are
+ * checked with the 128 bit canonical hashes, or with the InChIs, over all the
+ * input files. The input files ending with .gz are read as gzip files.
+ *
+ * java -cp HMD.jar HMD.ShardMerger -o merged.sdf output.1of4.sdf ... output.4of4.sdf
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+public class ShardMerger {
+	private final boolean inchi;
+	private final LongHashSet hashes= new LongHashSet();
+	private final Set<String> inchis= new HashSet<String>();
+	private long read= 0;
+	private long written= 0;
+
+	/**
+	 * The duplicates are checked with the InChIs if inchi is true, otherwise with the canonical hashes.
+	 */
+	public ShardMerger(boolean inchi) {
+		this.inchi= inchi;
+	}
+
+	/**
+	 * Writes the structures of the sdf files to the sink, skipping the ones written before.
+	 */
+	public void merge(List<String> inputs, StructureSink sink) throws CDKException, IOException {
+		for(String input: inputs) {
+			InputStream in= new FileInputStream(input);
+			if(input.endsWith(".gz")) in= new GZIPInputStream(in);
+			try(IteratingSDFReader reader= new IteratingSDFReader(new InputStreamReader(in,StandardCharsets.UTF_8),SilentChemObjectBuilder.getInstance())) {
+				while(reader.hasNext()) {
+					IAtomContainer mol= reader.next();
+					read++;
+					if(unique(mol)) {
+						sink.write(mol);
+						written++;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean unique(IAtomContainer mol) throws CDKException {
+		if(inchi) {
+			return inchis.add(InChIDeduplicator.inchigen(mol));
+		}
+		long[] hash= CanonicalHash.hash(mol);
+		return hashes.add(hash[0],hash[1]);
+	}
+
+	/**
+	 * The number of structures read from the inputs.
+	 */
+	public long read() {
+		return read;
+	}
+
+	/**
+	 * The number of unique structures written to the sink.
+	 */
+	public long written() {
+		return written;
+	}
+
+	public static void main(String[] args) throws CDKException, IOException {
+		Options options = new Options();
+		options.addOption(Option.builder("o")
+			     .required(true)
+			     .hasArg()
+			     .longOpt("output")
+			     .desc("The merged sdf file (required)")
+			     .build());
+		options.addOption(Option.builder("z")
+			     .required(false)
+			     .longOpt("gzip")
+			     .desc("Compress the merged file with gzip")
+			     .build());
+		options.addOption(Option.builder("u")
+			     .required(false)
+			     .hasArg()
+			     .longOpt("dedup")
+			     .desc("Duplicate check: canon (canonical hashes, default) or inchi")
+			     .build());
+		CommandLine cmd;
+		try {
+			cmd = new DefaultParser().parse(options, args);
+			if(cmd.getArgList().isEmpty()) throw new ParseException("No input files");
+		}catch(ParseException e) {
+			HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("java -cp HMD.jar HMD.ShardMerger -o <file> [-z] [-u <arg>] <shard sdf files>",
+					"\nMerges the sdf files of the shards without the duplicates.\n\n",options,"");
+			return;
+		}
+		ShardMerger merger= new ShardMerger("inchi".equals(cmd.getOptionValue("dedup","canon")));
+		StructureSink sink= new AsyncSDFSink(cmd.getOptionValue("output"),cmd.hasOption("gzip"));
+		try {
+			merger.merge(cmd.getArgList(),sink);
+		}finally {
+			sink.close();
+		}
+		System.out.println("Read structures: "+merger.read()+", merged structures: "+merger.written());
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The sink writing the canonical SMILES of the structures, one line for each
+ * structure, optionally gzip compressed. The same structure always gives the same
+ * line, so the outputs of two runs can be compared line by line after sorting.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+public class SmilesSink implements StructureSink {
+	private final SmilesGenerator smiles= new SmilesGenerator(SmiFlavor.Canonical);
+	private final Writer out;
+	private long written= 0;
+
+	/**
+	 * Writes to the file of the given path, gzip compressed if gzip is true.
+	 */
+	public SmilesSink(String path, boolean gzip) throws IOException {
+		this(gzip ? new GZIPOutputStream(new FileOutputStream(path),AsyncSDFSink.BUFFERSIZE) : new FileOutputStream(path));
+	}
+
+	/**
+	 * Continues the file of the given path from the offset, as after a checkpoint.
+	 */
+	public SmilesSink(String path, long offset) throws IOException {
+		this(AsyncSDFSink.truncate(path,offset));
+	}
+
+	public SmilesSink(OutputStream out) {
+		this.out= new BufferedWriter(new OutputStreamWriter(out,StandardCharsets.UTF_8),AsyncSDFSink.BUFFERSIZE);
+	}
+
+	public void write(IAtomContainer mol) throws CDKException, IOException {
+		out.write(smiles.create(mol));
+		out.write('\n');
+		written++;
+	}
+
+	/**
+	 * The number of structures written so far.
+	 */
+	public long written() {
+		return written;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,322 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The graph sink writing the structures in the order of their canonical hashes, so the
+ * output is the same in every run, also with the parallel generation. The structures are
+ * ordered by the hash of their connectivity and then by the hash with their bond orders.
+ *
+ * The structures are kept in a buffer of the given size as the records of the binary
+ * format. A full buffer is sorted and written to a run file; at the end, the runs and the
+ * last buffer are merged into the structure sink. At most FANIN runs are merged at the
+ * same time; with more runs, the runs are merged into longer runs first. The memory is
+ * the buffer and the read buffers of the merged runs, whatever the size of the output.
+ *
+ * In the unique mode, only the first structure of each connectivity is written: the one
+ * with the lowest hash of its bond orders. The duplicate check of the generation keeps
+ * one structure for each connectivity, but with several threads, the structure reaching
+ * the check first changes from run to run. With a duplicate check of the bond orders, all
+ * the structures of a connectivity reach the sink and the same one is written in every run.
+ * The atoms of the structures are written in their canonical order, since the same
+ * structure is also reached with the equivalent atoms of the input exchanged.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class SortingSink implements GraphSink, Closeable {
+	public static final int SIZE= 1<<16;
+	public static final int FANIN= 64;
+	private static final int READBUFFER= 1<<16;
+
+	private final Entry[] entries;
+	private final File directory;
+	private final boolean unique;
+	private final List<File> runs= new ArrayList<File>();
+	private File folder;
+	private int count= 0;
+	private int files= 0;
+	private long written= 0;
+
+	/**
+	 * The runs are written to a temporary folder of the directory.
+	 */
+	public SortingSink(File directory, boolean unique) {
+		this(SIZE,directory,unique);
+	}
+
+	public SortingSink(int size, File directory, boolean unique) {
+		this.entries= new Entry[Math.max(1,size)];
+		this.directory= directory;
+		this.unique= unique;
+	}
+
+	public synchronized void write(MoleculeGraph mol) throws CDKException, IOException {
+		long[] hash= mol.hash();
+		long[] labelling= new long[mol.atomcount()];
+		long[] orders= mol.orderhash(labelling);
+		ByteArrayOutputStream record= new ByteArrayOutputStream();
+		BinarySink.write(new DataOutputStream(record),canonical(mol.container(),labelling));
+		entries[count++]= new Entry(hash[0],hash[1],orders[0],orders[1],record.toByteArray());
+		if(count==entries.length) spill();
+	}
+
+	/**
+	 * Orders the atoms of the container by their canonical labels.
+	 */
+	private static IAtomContainer canonical(IAtomContainer ac, long[] labelling) {
+		long[] sorted= labelling.clone();
+		Arrays.sort(sorted);
+		IAtom[] atoms= new IAtom[labelling.length];
+		for(int i=0;i<labelling.length;i++) {
+			atoms[Arrays.binarySearch(sorted,labelling[i])]= ac.getAtom(i);
+		}
+		ac.setAtoms(atoms);
+		return ac;
+	}
+
+	/**
+	 * Sorts the buffer and writes it to a new run.
+	 */
+	private void spill() throws IOException {
+		Arrays.sort(entries,0,count);
+		File run= file();
+		try(DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run),READBUFFER))) {
+			for(int i=0;i<count;i++) {
+				entries[i].write(out);
+				entries[i]= null;
+			}
+		}
+		runs.add(run);
+		count= 0;
+	}
+
+	private File file() throws IOException {
+		if(folder==null) folder= Files.createTempDirectory(directory.toPath(),"hmd-sort").toFile();
+		return new File(folder,"run"+(files++));
+	}
+
+	/**
+	 * The number of the runs written so far.
+	 */
+	public synchronized int runs() {
+		return runs.size();
+	}
+
+	/**
+	 * Writes the structures to the sink in their order and returns their number.
+	 */
+	public synchronized long output(StructureSink sink) throws CDKException, IOException {
+		while(runs.size()>FANIN) {
+			List<File> merged= new ArrayList<File>(runs.subList(0,FANIN));
+			runs.removeAll(merged);
+			File run= file();
+			try(DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run),READBUFFER))) {
+				merge(sources(merged),unique,new Target() {
+					public void write(Entry entry) throws IOException {
+						entry.write(out);
+					}
+				});
+			}
+			for(File file: merged) {
+				Files.delete(file.toPath());
+			}
+			runs.add(run);
+		}
+		Arrays.sort(entries,0,count);
+		List<Source> sources= sources(runs);
+		sources.add(new Source(entries,count));
+		merge(sources,unique,new Target() {
+			public void write(Entry entry) throws CDKException, IOException {
+				DataInputStream in= new DataInputStream(new ByteArrayInputStream(entry.record));
+				sink.write(BinaryReader.structure(in,in.readUnsignedShort()));
+				written++;
+			}
+		});
+		return written;
+	}
+
+	/**
+	 * The number of the structures written by output.
+	 */
+	public synchronized long written() {
+		return written;
+	}
+
+	private static List<Source> sources(List<File> runs) throws IOException {
+		List<Source> sources= new ArrayList<Source>();
+		for(File run: runs) {
+			sources.add(new Source(run));
+		}
+		return sources;
+	}
+
+	/**
+	 * Passes the entries of the sources to the target in their order; in the unique mode, only
+	 * the first entry of each connectivity.
+	 */
+	private static void merge(List<Source> sources, boolean unique, Target target) throws CDKException, IOException {
+		PriorityQueue<Source> queue= new PriorityQueue<Source>();
+		Entry last= null;
+		try {
+			for(Source source: sources) {
+				if(source.next()) queue.add(source);
+			}
+			while(!queue.isEmpty()) {
+				Source source= queue.poll();
+				if(!unique || last==null || last.hash0!=source.entry.hash0 || last.hash1!=source.entry.hash1) {
+					target.write(source.entry);
+					last= source.entry;
+				}
+				if(source.next()) queue.add(source);
+			}
+		}finally {
+			for(Source source: sources) {
+				source.close();
+			}
+		}
+	}
+
+	/**
+	 * Removes the runs.
+	 */
+	public synchronized void close() throws IOException {
+		for(File run: runs) {
+			Files.deleteIfExists(run.toPath());
+		}
+		runs.clear();
+		if(folder!=null) Files.deleteIfExists(folder.toPath());
+	}
+
+	private interface Target {
+		void write(Entry entry) throws CDKException, IOException;
+	}
+
+	/**
+	 * A structure with its hashes and its record in the binary format.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		final long hash0, hash1, orders0, orders1;
+		final byte[] record;
+
+		Entry(long hash0, long hash1, long orders0, long orders1, byte[] record) {
+			this.hash0= hash0;
+			this.hash1= hash1;
+			this.orders0= orders0;
+			this.orders1= orders1;
+			this.record= record;
+		}
+
+		public int compareTo(Entry other) {
+			int c= Long.compare(hash0,other.hash0);
+			if(c==0) c= Long.compare(hash1,other.hash1);
+			if(c==0) c= Long.compare(orders0,other.orders0);
+			if(c==0) c= Long.compare(orders1,other.orders1);
+			return c;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeLong(hash0);
+			out.writeLong(hash1);
+			out.writeLong(orders0);
+			out.writeLong(orders1);
+			out.writeInt(record.length);
+			out.write(record);
+		}
+	}
+
+	/**
+	 * The sorted entries of a run or of the buffer, read one at a time.
+	 */
+	private static final class Source implements Comparable<Source>, Closeable {
+		private final DataInputStream in;
+		private final Entry[] entries;
+		private final int count;
+		private int position= 0;
+		Entry entry;
+
+		Source(File run) throws IOException {
+			this.in= new DataInputStream(new BufferedInputStream(new FileInputStream(run),READBUFFER));
+			this.entries= null;
+			this.count= 0;
+		}
+
+		Source(Entry[] entries, int count) {
+			this.in= null;
+			this.entries= entries;
+			this.count= count;
+		}
+
+		boolean next() throws IOException {
+			if(in==null) {
+				entry= position<count ? entries[position++] : null;
+				return entry!=null;
+			}
+			long hash0;
+			try {
+				hash0= in.readLong();
+			}catch(EOFException e) {
+				entry= null;
+				return false;
+			}
+			long hash1= in.readLong(), orders0= in.readLong(), orders1= in.readLong();
+			byte[] record= new byte[in.readInt()];
+			in.readFully(record);
+			entry= new Entry(hash0,hash1,orders0,orders1,record);
+			return true;
+		}
+
+		public int compareTo(Source other) {
+			return entry.compareTo(other.entry);
+		}
+
+		public void close() throws IOException {
+			if(in!=null) in.close();
+		}
+	}
+}
@@ -0,0 +1,422 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The duplicate check with the 128 bit canonical hashes, as CanonicalDeduplicator,
+ * within a memory budget. The new hashes are kept in a hot hash set in memory. When
+ * the hot set is full, its hashes are sorted and spilled to a run file on the disk,
+ * and the set is emptied. A hash is unique if it is neither in the hot set nor in
+ * any of the runs, so the check stays exact over the whole generation.
+ *
+ * Each run has a Bloom filter in memory, so a new hash is looked up in a run only if
+ * the filter of the run can contain it; the runs are memory mapped and searched by
+ * bisection. When there are more than MAXRUNS runs, the smallest ones are merged into
+ * one run, so the number of the filters checked for a hash stays small. The runs are
+ * merged up to MAXRUN hashes; beyond it, the two smallest runs are still merged, so
+ * there are never more than MAXRUNS runs. A run is mapped in segments of 1 GB, so it
+ * has no size limit.
+ *
+ * The budget is the memory of the hot set and of the Bloom filters; the filters take
+ * about 1.25 bytes for each hash on the disk and the hot set gets the rest of the
+ * budget. The run files are written to a temporary folder of the given directory,
+ * removed by close. A file which can not be deleted yet, like a file still mapped on
+ * Windows, is deleted at the exit of the JVM. With the bond orders, the hashes are the
+ * ones of CanonicalDeduplicator with the bond orders.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class SpillingDeduplicator implements Deduplicator, Closeable {
+	public static final int MAXRUNS= 8;
+	//The memory of a hash in the hot set, with the free slots of the table.
+	private static final int HOTBYTES= 64;
+	private static final int MINHOT= 256;
+	private static final int BLOOMBITS= 10;
+	private static final int BLOOMHASHES= 7;
+	//The runs are merged up to this number of hashes, 2 GB, unless only two are merged.
+	private static final long MAXRUN= Integer.MAX_VALUE/16;
+	//The bytes of a mapped segment of a run, a multiple of the 16 bytes of a hash.
+	private static final int SEGMENT= 1<<30;
+
+	private final long budget;
+	private final boolean orders;
+	private final File folder;
+	private final List<Run> runs= new ArrayList<Run>();
+	private LongHashSet hot;
+	private int limit;
+	private long size= 0;
+	private long spills= 0;
+	private long merges= 0;
+	private int files= 0;
+
+	/**
+	 * The check with the given budget in bytes, spilling to the given directory.
+	 */
+	public SpillingDeduplicator(long budget, File directory) throws IOException {
+		this(budget,directory,false);
+	}
+
+	public SpillingDeduplicator(long budget, File directory, boolean orders) throws IOException {
+		this.budget= budget;
+		this.orders= orders;
+		this.folder= Files.createTempDirectory(directory.toPath(),"hmd-dedup").toFile();
+		//Registered first, so it is deleted after its files at the exit if close could not.
+		this.folder.deleteOnExit();
+		this.limit= hotlimit(0);
+		this.hot= new LongHashSet(limit);
+	}
+
+	/**
+	 * The hash is computed before the lock, so the threads only wait for each other on the
+	 * lookup and not on the canonical labelling.
+	 */
+	public boolean add(MoleculeGraph mol) {
+		long[] hash= orders ? mol.orderhash(null) : mol.hash();
+		return add(hash[0],hash[1]);
+	}
+
+	synchronized boolean add(long hi, long lo) {
+		if(hot.contains(hi,lo)) return false;
+		for(Run run: runs) {
+			if(run.contains(hi,lo)) return false;
+		}
+		hot.add(hi,lo);
+		size++;
+		if(hot.size()>=limit) {
+			try {
+				spill();
+			}catch(IOException e) {
+				throw new UncheckedIOException("The hashes can not be spilled to "+folder,e);
+			}
+		}
+		return true;
+	}
+
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * The number of the hashes of the hot set allowed by the budget and the filters.
+	 */
+	private int hotlimit(long bloombytes) {
+		return (int)Math.min(1<<28,Math.max(MINHOT,(budget-bloombytes)/HOTBYTES));
+	}
+
+	/**
+	 * Writes the sorted hashes of the hot set to a new run and empties the set.
+	 */
+	private void spill() throws IOException {
+		long[] keys= hot.keys();
+		sort(keys,0,keys.length/2-1);
+		runs.add(write(new PairIterator() {
+			int i= 0;
+			public boolean next(long[] pair) {
+				if(i>=keys.length) return false;
+				pair[0]= keys[i++];
+				pair[1]= keys[i++];
+				return true;
+			}
+		},keys.length/2));
+		spills++;
+		if(runs.size()>MAXRUNS) compact();
+		long bloombytes= 0;
+		for(Run run: runs) {
+			bloombytes+= run.bloom.length*8L;
+		}
+		limit= hotlimit(bloombytes);
+		hot= new LongHashSet(limit);
+	}
+
+	/**
+	 * Merges the smallest runs into one run.
+	 */
+	private void compact() throws IOException {
+		List<Run> sorted= new ArrayList<Run>(runs);
+		Collections.sort(sorted,new Comparator<Run>() {
+			public int compare(Run a, Run b) {
+				return Long.compare(a.count,b.count);
+			}
+		});
+		final List<Run> merged= new ArrayList<Run>();
+		long count= 0;
+		for(Run run: sorted) {
+			if(merged.size()>=2 && count+run.count>MAXRUN) break;
+			merged.add(run);
+			count+= run.count;
+		}
+		if(merged.size()<2) return;
+		final long[] heads= new long[2*merged.size()];
+		final long[] positions= new long[merged.size()];
+		for(int r=0;r<merged.size();r++) {
+			merged.get(r).read(0,heads,2*r);
+		}
+		Run run= write(new PairIterator() {
+			public boolean next(long[] pair) {
+				int min= -1;
+				for(int r=0;r<merged.size();r++) {
+					if(positions[r]<merged.get(r).count && (min==-1 || compare(heads[2*r],heads[2*r+1],heads[2*min],heads[2*min+1])<0)) min= r;
+				}
+				if(min==-1) return false;
+				pair[0]= heads[2*min];
+				pair[1]= heads[2*min+1];
+				if(++positions[min]<merged.get(min).count) merged.get(min).read(positions[min],heads,2*min);
+				return true;
+			}
+		},count);
+		for(Run old: merged) {
+			runs.remove(old);
+			old.delete();
+		}
+		runs.add(run);
+		merges++;
+	}
+
+	/**
+	 * Writes the sorted pairs to a new run file with its Bloom filter.
+	 */
+	private Run write(PairIterator pairs, long count) throws IOException {
+		File file= new File(folder,"run"+(files++));
+		long[] bloom= new long[(int)Math.max(1,(count*BLOOMBITS+63)/64)];
+		long[] pair= new long[2];
+		try(DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1<<16))) {
+			while(pairs.next(pair)) {
+				out.writeLong(pair[0]);
+				out.writeLong(pair[1]);
+				Run.set(bloom,pair[0],pair[1]);
+			}
+		}
+		return new Run(file,count,bloom);
+	}
+
+	/**
+	 * The number of runs written from the hot set.
+	 */
+	public synchronized long spills() {
+		return spills;
+	}
+
+	/**
+	 * The number of merges of the runs.
+	 */
+	public synchronized long merges() {
+		return merges;
+	}
+
+	/**
+	 * The number of the runs on the disk.
+	 */
+	public synchronized int runs() {
+		return runs.size();
+	}
+
+	/**
+	 * Writes the number of hashes and the hashes of the hot set and of the runs.
+	 */
+	public synchronized void save(DataOutput out) throws IOException {
+		out.writeLong(size);
+		long[] keys= hot.keys();
+		for(long key: keys) {
+			out.writeLong(key);
+		}
+		for(Run run: runs) {
+			try(DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(run.file),1<<16))) {
+				for(long i=0;i<2*run.count;i++) {
+					out.writeLong(in.readLong());
+				}
+			}
+		}
+	}
+
+	public synchronized void load(DataInput in) throws IOException {
+		long count= in.readLong();
+		for(long i=0;i<count;i++) {
+			add(in.readLong(),in.readLong());
+		}
+	}
+
+	/**
+	 * Removes the run files, or leaves them to the exit of the JVM if they can not be
+	 * deleted yet.
+	 */
+	public synchronized void close() throws IOException {
+		for(Run run: runs) {
+			run.delete();
+		}
+		runs.clear();
+		try {
+			Files.deleteIfExists(folder.toPath());
+		}catch(IOException e) {
+		}
+	}
+
+	static int compare(long hi1, long lo1, long hi2, long lo2) {
+		int c= Long.compare(hi1,hi2);
+		return c!=0 ? c : Long.compare(lo1,lo2);
+	}
+
+	/**
+	 * Sorts the pairs from the index lo to hi by quicksort; the hashes are random, so the
+	 * middle pivot is good enough.
+	 */
+	static void sort(long[] keys, int lo, int hi) {
+		while(lo<hi) {
+			int mid= (lo+hi)>>>1;
+			long phi= keys[2*mid], plo= keys[2*mid+1];
+			int i= lo, j= hi;
+			while(i<=j) {
+				while(compare(keys[2*i],keys[2*i+1],phi,plo)<0) i++;
+				while(compare(keys[2*j],keys[2*j+1],phi,plo)>0) j--;
+				if(i<=j) {
+					long h= keys[2*i], l= keys[2*i+1];
+					keys[2*i]= keys[2*j];
+					keys[2*i+1]= keys[2*j+1];
+					keys[2*j]= h;
+					keys[2*j+1]= l;
+					i++;
+					j--;
+				}
+			}
+			//The smaller part is sorted by recursion, so the depth stays logarithmic.
+			if(j-lo<hi-i) {
+				sort(keys,lo,j);
+				lo= i;
+			}else {
+				sort(keys,i,hi);
+				hi= j;
+			}
+		}
+	}
+
+	private interface PairIterator {
+		boolean next(long[] pair);
+	}
+
+	/**
+	 * A sorted run of hashes on the disk with its Bloom filter.
+	 */
+	private static final class Run {
+		final File file;
+		final long count;
+		final long[] bloom;
+		private MappedByteBuffer[] segments;
+
+		Run(File file, long count, long[] bloom) throws IOException {
+			this.file= file;
+			this.count= count;
+			this.bloom= bloom;
+			long bytes= 16*count;
+			this.segments= new MappedByteBuffer[(int)Math.max(1,(bytes+SEGMENT-1)/SEGMENT)];
+			try(RandomAccessFile raf= new RandomAccessFile(file,"r"); FileChannel channel= raf.getChannel()) {
+				for(int s=0;s<segments.length;s++) {
+					long start= (long)s*SEGMENT;
+					segments[s]= channel.map(FileChannel.MapMode.READ_ONLY,start,Math.min(SEGMENT,bytes-start));
+				}
+			}
+		}
+
+		/**
+		 * The long at the byte position; the hashes do not cross the segments.
+		 */
+		private long get(long position) {
+			return segments[(int)(position/SEGMENT)].getLong((int)(position%SEGMENT));
+		}
+
+		/**
+		 * Sets the bits of the hash in the filter. The hashes are random, so the bits are
+		 * taken from the two halves by double hashing.
+		 */
+		static void set(long[] bloom, long hi, long lo) {
+			long bits= 64L*bloom.length;
+			for(int k=0;k<BLOOMHASHES;k++) {
+				long bit= Math.floorMod(hi+k*lo,bits);
+				bloom[(int)(bit>>>6)]|= 1L<<bit;
+			}
+		}
+
+		private boolean filtered(long hi, long lo) {
+			long bits= 64L*bloom.length;
+			for(int k=0;k<BLOOMHASHES;k++) {
+				long bit= Math.floorMod(hi+k*lo,bits);
+				if((bloom[(int)(bit>>>6)] & 1L<<bit)==0) return false;
+			}
+			return true;
+		}
+
+		boolean contains(long hi, long lo) {
+			if(!filtered(hi,lo)) return false;
+			long low= 0, high= count-1;
+			while(low<=high) {
+				long mid= (low+high)>>>1;
+				int c= compare(get(16*mid),get(16*mid+8),hi,lo);
+				if(c==0) return true;
+				if(c<0) low= mid+1;
+				else high= mid-1;
+			}
+			return false;
+		}
+
+		void read(long i, long[] pairs, int at) {
+			pairs[at]= get(16*i);
+			pairs[at+1]= get(16*i+8);
+		}
+
+		/**
+		 * Drops the mapped segments and deletes the file. A mapped file can not be deleted
+		 * on Windows until its buffers are collected, so it is then deleted at the exit.
+		 */
+		void delete() {
+			segments= null;
+			try {
+				Files.deleteIfExists(file.toPath());
+			}catch(IOException e) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
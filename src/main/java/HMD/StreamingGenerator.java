@@ -0,0 +1,397 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * This class is the streaming version of the genall function. Instead of keeping
+ * all the extensions in the molecule list, the extensions are visited depth first
+ * and the unique connected structures are passed to the sink as soon as they are
+ * saturated.
+ *
+ * In genall, the saturated structures of an index are extended again for the next
+ * indices. Here, each saturated structure is pushed to the stack together with the
+ * stages of the next indices. Thus, the same extensions are performed but only the
+ * extensions on the current path of the search are kept in memory.
+ *
+ * The search runs on the bond order matrices of MoleculeGraph; the atom containers
+ * are only built for the unique structures. The structures can also be pulled one
+ * by one with the next function.
+ *
+ * The stack, the structures not returned yet and the duplicate check are the whole
+ * state of the generation. They are written to a checkpoint by save, and a new
+ * generator of the same input continues from the checkpoint after restore.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+public class StreamingGenerator {
+	private final int[] indices;
+	private final Deque<Node> stack= new ArrayDeque<Node>();
+	private final Deque<MoleculeGraph> pending= new ArrayDeque<MoleculeGraph>();
+	private final List<MoleculeGraph> extensions= new ArrayList<MoleculeGraph>();
+	private final Deduplicator uniquecheck;
+	private final Metrics metrics= new Metrics();
+	private final MoleculeGraph root;
+	private Checkpoint checkpoint;
+	private StructureSink sink;
+	private boolean pruning= true;
+	private boolean complete= false;
+	private ExpansionCache cache= new ExpansionCache();
+	private int count=0;
+	private AtomicBoolean cancelled= new AtomicBoolean();
+
+	/**
+	 * The molecule is saturated in the order of the indices, as in genall. The duplicates are
+	 * checked with the canonical hashes.
+	 */
+	public StreamingGenerator(IAtomContainer mol, List<Integer> indices) {
+		this(mol,indices,new CanonicalDeduplicator());
+	}
+
+	public StreamingGenerator(IAtomContainer mol, List<Integer> indices, Deduplicator uniquecheck) {
+		this.uniquecheck= uniquecheck;
+		this.indices= new int[indices.size()];
+		for(int i=0;i<indices.size();i++) {
+			this.indices[i]=indices.get(i);
+		}
+		this.root= new MoleculeGraph(mol);
+		metrics.symmetry(root.symmetry());
+		metrics.cache(cache);
+		push(root,0,this.indices.length-1);
+	}
+
+	/**
+	 * Generates all the structures and writes them to the sink. Returns the number of
+	 * written structures.
+	 */
+	public int generate(StructureSink sink) throws CloneNotSupportedException, CDKException, IOException {
+		return generate(sink,null);
+	}
+
+	/**
+	 * Same as generate but the state is written to the checkpoint when it is due. The sink is
+	 * flushed before, so the checkpoint follows the written structures.
+	 */
+	public int generate(StructureSink sink, Checkpoint checkpoint) throws CloneNotSupportedException, CDKException, IOException {
+		this.sink= sink;
+		this.checkpoint= checkpoint;
+		IAtomContainer mol;
+		while((mol=next())!=null) {
+			long start= System.nanoTime();
+			sink.write(mol);
+			metrics.outputnanos.add(System.nanoTime()-start);
+			metrics.written.increment();
+		}
+		return count;
+	}
+
+	/**
+	 * Same as generate but the graphs of the structures are passed to the sink; their atom
+	 * containers are not built.
+	 */
+	public int enumerate(GraphSink sink) throws CloneNotSupportedException, CDKException, IOException {
+		MoleculeGraph mol;
+		while((mol=nextgraph())!=null) {
+			long start= System.nanoTime();
+			sink.write(mol);
+			metrics.outputnanos.add(System.nanoTime()-start);
+			metrics.written.increment();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the next unique connected structure, or null if the generation is finished.
+	 */
+	public IAtomContainer next() throws CloneNotSupportedException, CDKException, IOException {
+		MoleculeGraph mol= nextgraph();
+		if(mol==null) return null;
+		metrics.containers.increment();
+		return mol.container();
+	}
+
+	private MoleculeGraph nextgraph() throws CloneNotSupportedException, CDKException, IOException {
+		while(pending.isEmpty() && !stack.isEmpty()) {
+			if(checkpoint!=null && checkpoint.due()) {
+				checkpoint.save(this,sink);
+			}
+			atomsat(stack.pop());
+		}
+		MoleculeGraph mol= pending.poll();
+		if(mol==null) metrics.finish();
+		return mol;
+	}
+
+	/**
+	 * The extensions which can never give a connected structure are not extended further,
+	 * see MoleculeGraph.connectable. The pruning does not change the generated structures;
+	 * it is on by default.
+	 */
+	public void pruning(boolean pruning) {
+		this.pruning= pruning;
+	}
+
+	/**
+	 * Only the structures with all their atoms saturated are written if complete is true, as
+	 * for the formulas. Otherwise, a structure is written once its index is saturated, as in
+	 * genall, so its other atoms can still have open sites.
+	 */
+	public void complete(boolean complete) {
+		this.complete= complete;
+	}
+
+	/**
+	 * The constraints of the structures, see Constraints. They are set before the generation.
+	 */
+	public void constraints(Constraints constraints) {
+		root.constraints(constraints);
+	}
+
+	/**
+	 * The cache of the expanded extensions, see ExpansionCache. It is set before the generation.
+	 */
+	public void cache(ExpansionCache cache) {
+		this.cache= cache;
+		metrics.cache(cache);
+	}
+
+	/**
+	 * The flag cancelling the generation, shared with the caller; see cancel.
+	 */
+	public void cancellation(AtomicBoolean cancelled) {
+		this.cancelled= cancelled;
+	}
+
+	/**
+	 * Stops the generation at its next expansion; the generation throws a CancellationException.
+	 */
+	public void cancel() {
+		cancelled.set(true);
+	}
+
+	/**
+	 * The metrics of the generation, updated while generating.
+	 */
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * The number of structures returned so far.
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * The number of extensions waiting on the stack.
+	 */
+	public int stacksize() {
+		return stack.size();
+	}
+
+	/**
+	 * Restricts the generation to the work units of the shard. It is called before the
+	 * generation starts.
+	 */
+	public void shard(Shard shard) throws CDKException {
+		shard.split(root,indices);
+		stack.clear();
+		for(int u=0;u<shard.graphs.size();u++) {
+			stack.addLast(new Node(shard.graphs.get(u),shard.stages.get(u)));
+		}
+		for(MoleculeGraph ac: shard.saturated) {
+			saturated(ac);
+		}
+	}
+
+	/**
+	 * Writes the state of the generation: the stack, the structures not returned yet, the number
+	 * of the structures and the duplicate check. The bond orders of the graphs are written as
+	 * the upper triangles of their matrices.
+	 */
+	public void save(DataOutput out) throws IOException {
+		int n= root.atomcount();
+		out.writeInt(n);
+		out.writeInt(indices.length);
+		for(int index: indices) {
+			out.writeInt(index);
+		}
+		out.writeInt(count);
+		out.writeInt(stack.size());
+		for(Node node: stack) {
+			out.writeInt(node.stage);
+			save(out,node.mol);
+		}
+		out.writeInt(pending.size());
+		for(MoleculeGraph mol: pending) {
+			save(out,mol);
+		}
+		uniquecheck.save(out);
+	}
+
+	private static void save(DataOutput out, MoleculeGraph mol) throws IOException {
+		int n= mol.atomcount();
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				out.writeByte(mol.order(i,j));
+			}
+		}
+	}
+
+	/**
+	 * Replaces the state of the generation with the one written by save. The generator must be
+	 * built for the same input and indices.
+	 */
+	public void restore(DataInput in) throws IOException {
+		int n= in.readInt();
+		int length= in.readInt();
+		boolean same= n==root.atomcount() && length==indices.length;
+		for(int i=0;i<length;i++) {
+			if(in.readInt()!=(same ? indices[i] : -1)) same= false;
+		}
+		if(!same) {
+			throw new IOException("The checkpoint is not of the same input");
+		}
+		count= in.readInt();
+		stack.clear();
+		int size= in.readInt();
+		for(int i=0;i<size;i++) {
+			int stage= in.readInt();
+			stack.addLast(new Node(graph(in),stage));
+		}
+		pending.clear();
+		size= in.readInt();
+		for(int i=0;i<size;i++) {
+			pending.addLast(graph(in));
+		}
+		uniquecheck.load(in);
+	}
+
+	private MoleculeGraph graph(DataInput in) throws IOException {
+		MoleculeGraph mol= new MoleculeGraph(root);
+		int n= mol.atomcount();
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				int order= in.readByte();
+				for(int k=mol.order(i,j);k<order;k++) {
+					mol.bondadder(i,j);
+				}
+			}
+		}
+		return mol;
+	}
+
+	/**
+	 * The stages of the molecule from the given one to the last one are pushed to the stack.
+	 * The smallest stage is on the top of the stack.
+	 */
+	private void push(MoleculeGraph mol, int stage, int last) {
+		for(int i=last;i>=stage;i--) {
+			if(cache.visit(mol,i)) stack.push(new Node(mol,i));
+		}
+	}
+
+	/**
+	 * One step of the atomsat function. The extensions not saturated yet are pushed to the stack
+	 * to be extended from the same index. The saturated ones are checked and pushed for the
+	 * next indices.
+	 */
+	private void atomsat(Node node) throws CDKException {
+		if(cancelled.get()) throw new CancellationException("The generation is cancelled");
+		int index= indices[node.stage];
+		extensions.clear();
+		node.mol.atomext(index,extensions);
+		metrics.expansions.increment();
+		metrics.extensions.add(extensions.size());
+		for(int i=extensions.size()-1;i>=0;i--) {
+			MoleculeGraph ac= extensions.get(i);
+			if(ac.satcheck(index)) {
+				if(pruning && ac.connectable(indices)<node.stage) {
+					metrics.pruned.increment();
+				}else if(cache.visit(ac,node.stage)) {
+					stack.push(new Node(ac,node.stage));
+				}
+			}else {
+				int last= pruning ? ac.connectable(indices) : indices.length-1;
+				push(ac,node.stage+1,last);
+				metrics.pruned.add(indices.length-1-Math.max(last,node.stage));
+				if(cache.visit(ac,-1)) saturated(ac);
+			}
+		}
+		extensions.clear();
+		metrics.pending= stack.size();
+	}
+
+	/**
+	 * The saturated structure is returned later if it is connected and not generated before.
+	 */
+	private void saturated(MoleculeGraph ac) throws CDKException {
+		metrics.saturated.increment();
+		if(!ac.connected()) {
+			metrics.disconnected.increment();
+		}else if(!ac.accepted() || (complete && !ac.saturated())) {
+			metrics.rejected.increment();
+		}else if(unique(ac)) {
+			count++;
+			pending.add(ac);
+		}
+	}
+
+	private boolean unique(MoleculeGraph ac) throws CDKException {
+		long start= System.nanoTime();
+		boolean unique= uniquecheck.add(ac);
+		metrics.dedupnanos.add(System.nanoTime()-start);
+		(unique ? metrics.unique : metrics.duplicates).increment();
+		return unique;
+	}
+
+	/**
+	 * An extension waiting to be saturated from the index of its stage.
+	 */
+	private static final class Node {
+		final MoleculeGraph mol;
+		final int stage;
+
+		Node(MoleculeGraph mol, int stage){
+			this.mol= mol;
+			this.stage= stage;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2018 Mehmet Aziz Yirik
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * The equivalence classes of the atoms for the extension steps. The atoms which
+ * can have more bonds are classified by their symbols, open sites and the CDK
+ * canon symmetry values, as in the ecenumlist function. The classes are returned
+ * as arrays of atom indices instead of a multimap of string keys.
+ *
+ * The same graph is reached by adding its bonds in different orders, so the classes
+ * are cached with the Zobrist key of the graph, which is updated with each added
+ * bond. The cache is direct mapped: a graph replaces the previous one of its slot.
+ * The bond order matrix is stored with the classes, so a hit is only accepted for
+ * the same graph. The cache can be shared by the threads.
+ *
+ * @author Mehmet Aziz Yirik
+ */
+
+package HMD;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class SymmetryClasses {
+	public static final int SIZE= 1<<14;
+
+	private final Entry[] entries;
+	private final int mask;
+	private final LongAdder hits= new LongAdder();
+	private final LongAdder misses= new LongAdder();
+	private final LongAdder nanos= new LongAdder();
+
+	public SymmetryClasses() {
+		this(SIZE);
+	}
+
+	/**
+	 * The cache with the given number of slots, rounded up to a power of two. With size 0,
+	 * the classes are not cached.
+	 */
+	public SymmetryClasses(int size) {
+		int slots= size<=0 ? 0 : Integer.highestOneBit(Math.max(1,size-1))<<1;
+		this.entries= new Entry[slots];
+		this.mask= slots-1;
+	}
+
+	/**
+	 * The classes of the graph. Each class lists its atoms in ascending order; the classes are
+	 * ordered by their first atoms.
+	 */
+	public int[][] classes(MoleculeGraph mol) {
+		if(entries.length==0) {
+			return timed(mol);
+		}
+		long key= mol.key();
+		int slot= (int)(key^(key>>>32)) & mask;
+		Entry entry= entries[slot];
+		if(entry!=null && entry.key==key && mol.sameorders(entry.orders)) {
+			hits.increment();
+			return entry.classes;
+		}
+		int[][] classes= timed(mol);
+		entries[slot]= new Entry(key,mol.orders().clone(),classes);
+		return classes;
+	}
+
+	private int[][] timed(MoleculeGraph mol) {
+		long start= System.nanoTime();
+		int[][] classes= calculate(mol);
+		nanos.add(System.nanoTime()-start);
+		misses.increment();
+		return classes;
+	}
+
+	/**
+	 * Calculates the classes from the symmetry values of the graph.
+	 */
+	public static int[][] calculate(MoleculeGraph mol) {
+		int n= mol.atomcount();
+		long[] sym= mol.canonsym();
+		int[] classof= new int[n];
+		int[] size= new int[n];
+		int classes= 0;
+		for(int i=0;i<n;i++) {
+			classof[i]= -1;
+			if(mol.satcheck(i)) {
+				int open= mol.opencounter(i);
+				for(int j=0;j<i;j++) {
+					if(classof[j]!=-1 && sym[j]==sym[i] && mol.opencounter(j)==open && mol.code(j)==mol.code(i)) {
+						classof[i]= classof[j];
+						break;
+					}
+				}
+				if(classof[i]==-1) classof[i]= classes++;
+				size[classof[i]]++;
+			}
+		}
+		int[][] ec= new int[classes][];
+		for(int c=0;c<classes;c++) {
+			ec[c]= new int[size[c]];
+			size[c]= 0;
+		}
+		for(int i=0;i<n;i++) {
+			if(classof[i]!=-1) ec[classof[i]][size[classof[i]]++]= i;
+		}
+		return ec;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * The time of the class calculations in nanoseconds.
+	 */
+	public long nanos() {
+		return nanos.sum();
+	}
+
+	/**
+	 * The cached classes of a graph. The fields are final, so an entry is safely read by the
+	 * other threads.
+	 */
+	private static final class Entry {
+		final long key;
+		final byte[] orders;
+		final int[][] classes;
+
+		Entry(long key, byte[] orders, int[][] classes){
+			this.key= key;
+			this.orders= orders;
+			this.classes= classes;
+		}
+	}
+}
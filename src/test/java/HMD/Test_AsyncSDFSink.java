@@ -0,0 +1,71 @@
+package HMD;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Test_AsyncSDFSink {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	@Test
+	/**
+	 * All the structures put to the sink should be in the gzip file after close, also
+	 * when the queue is much smaller than the number of structures.
+	 */
+	public void test_write() throws CloneNotSupportedException, CDKException, IOException {
+		File file= new File(folder.getRoot(),"output.sdf.gz");
+		AsyncSDFSink sink= new AsyncSDFSink(new GZIPOutputStream(new FileOutputStream(file)),4,2);
+		IAtomContainer mol=Generator.build("C3C3C2C2C1C1");
+		int count=new StreamingGenerator(mol,Generator.ecindices(mol)).generate(sink);
+		sink.close();
+		assertEquals(count,sink.written());
+
+		IteratingSDFReader reader= new IteratingSDFReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file))),SilentChemObjectBuilder.getInstance());
+		int read=0;
+		while(reader.hasNext()) {
+			reader.next();
+			read++;
+		}
+		reader.close();
+		assertEquals(count,read);
+	}
+
+	@Test
+	/**
+	 * An error of the writer thread should be thrown to the generator side.
+	 */
+	public void test_failure() throws CDKException {
+		OutputStream broken= new OutputStream() {
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		AsyncSDFSink sink= new AsyncSDFSink(broken,4,2);
+		try {
+			for(int i=0;i<100;i++) {
+				sink.write(Generator.build("C4"));
+			}
+			sink.close();
+			fail("The error of the writer is not thrown");
+		}catch(IOException e) {
+			assertEquals("The sdf writer failed",e.getMessage());
+		}
+	}
+}
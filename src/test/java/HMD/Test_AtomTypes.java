@@ -0,0 +1,94 @@
+package HMD;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class Test_AtomTypes {
+
+	@Test
+	/**
+	 * The codes should be the atomic numbers and the overrides should only change their elements.
+	 */
+	public void test_valences() {
+		assertEquals(6,AtomTypes.code("C"));
+		assertEquals(17,AtomTypes.code("Cl"));
+		assertEquals(3,AtomTypes.DEFAULT.valence("N"));
+		assertEquals(1,AtomTypes.DEFAULT.valence("Cl"));
+		AtomTypes types= AtomTypes.parse("N=5, S=6");
+		assertEquals(5,types.valence("N"));
+		assertEquals(6,types.valence(AtomTypes.code("S")));
+		assertEquals(4,types.valence("C"));
+		assertEquals(3,AtomTypes.DEFAULT.valence("N"));
+		assertEquals("N=5,S=6",types.toString());
+		assertEquals("",AtomTypes.DEFAULT.toString());
+		assertEquals(0,types.valence("Na"));
+	}
+
+	@Test
+	/**
+	 * The invalid overrides should be rejected.
+	 */
+	public void test_parse() {
+		for(String spec: new String[] {"N","N=x","Xx=2","N=0","N=3=4","cl=1"}) {
+			try {
+				AtomTypes.parse(spec);
+				fail("Invalid valences accepted: "+spec);
+			}catch(IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * The built atoms should carry the valences of their types, so the graphs and the legacy
+	 * functions use the overrides.
+	 */
+	public void test_build() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol= Generator.build("C3C3C1C1N1O",AtomTypes.parse("N=5"));
+		assertEquals(5,new MoleculeGraph(mol).valence(4));
+		assertEquals(4,Generator.opencounter(mol,4));
+		assertEquals(3,new MoleculeGraph(Generator.build("C3C3C1C1N1O")).valence(4));
+		OrderlyGenerator orderly= new OrderlyGenerator(1);
+		assertEquals(18,orderly.enumerate(mol,GraphSink.NONE));
+		orderly.shutdown();
+		orderly= new OrderlyGenerator(1);
+		assertEquals(12,orderly.enumerate(Generator.build("C3C3C1C1N1O"),GraphSink.NONE));
+		orderly.shutdown();
+	}
+
+	@Test
+	/**
+	 * A change of the valences map of the Generator should change the types of the built
+	 * molecules.
+	 */
+	public void test_map() {
+		assertEquals(AtomTypes.DEFAULT,Generator.types());
+		Generator.valences.put("N",5);
+		try {
+			assertEquals("N=5",Generator.types().toString());
+			assertSame(Generator.types(),Generator.types());
+			assertEquals(5,new MoleculeGraph(Generator.build("C3C3C1C1N1O")).valence(4));
+			assertEquals("[C2N3]",new Formula("CH5N",Generator.types()).distributions().toString());
+			assertEquals("[C3N2]",new Formula("CH5N").distributions().toString());
+		}finally {
+			Generator.valences.put("N",3);
+		}
+		assertEquals(AtomTypes.DEFAULT,Generator.types());
+	}
+
+	@Test
+	/**
+	 * The formulas should be distributed with the valences of the types.
+	 */
+	public void test_formula() {
+		assertEquals("[C3N2]",new Formula("CH5N").distributions().toString());
+		assertEquals("[C2N3]",new Formula("CH5N",AtomTypes.parse("N=5")).distributions().toString());
+	}
+}
@@ -0,0 +1,113 @@
+package HMD;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_Batch {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	/**
+	 * The number of structures of the streaming generator.
+	 */
+	private int count(String molinfo) throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build(molinfo);
+		StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol),new CanonicalDeduplicator());
+		return stream.generate(new SDFSink(new SDFWriter(new StringWriter())));
+	}
+
+	@Test
+	/**
+	 * The blank lines and the comments should be skipped; the molecular information is the
+	 * name of the jobs without a name and the jobs get the options.
+	 */
+	public void test_read() throws IOException {
+		GenerationJob options= new GenerationJob(null,"out/");
+		options.dedup= "inchi";
+		options.threads= 2;
+		options.progress= 5;
+		options.checkpoint= 60;
+		options.resume= true;
+		options.shard= Shard.parse("1/4");
+		options.verbose= true;
+		List<GenerationJob> jobs= Batch.read(new StringReader("# inputs\n\nC3C3C2C2C1C1 hexene\n  C3C3CC2CC  \n"),options);
+		assertEquals(2,jobs.size());
+		assertEquals("C3C3C2C2C1C1",jobs.get(0).molinfo);
+		assertEquals("hexene",jobs.get(0).name);
+		assertEquals("C3C3CC2CC",jobs.get(1).name);
+		assertEquals("out/",jobs.get(1).filedir);
+		assertEquals("inchi",jobs.get(1).dedup);
+		assertEquals(2,jobs.get(1).threads);
+		assertEquals(5,jobs.get(1).progress);
+		assertEquals(60,jobs.get(1).checkpoint);
+		assertTrue(jobs.get(1).resume);
+		assertEquals("1/4",jobs.get(1).shard.toString());
+		assertTrue(jobs.get(1).verbose);
+	}
+
+	@Test
+	/**
+	 * Two jobs with the same name would write the same output file, so they should be rejected.
+	 */
+	public void test_names() throws IOException {
+		try {
+			Batch.read(new StringReader("C3C3CC2CC\nC3C3C2C2C1C1 hexene\nC3C3CC2CC\n"),new GenerationJob(null,"out/"));
+			fail("Two jobs with the same name accepted");
+		}catch(IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("C3C3CC2CC"));
+		}
+	}
+
+	@Test
+	/**
+	 * Each job should write its own output file and its summary line, in the order of the
+	 * batch file, with the number of structures of a single run.
+	 */
+	public void test_run() throws CloneNotSupportedException, CDKException, IOException, InterruptedException {
+		String filedir= folder.getRoot().getPath()+File.separator;
+		List<GenerationJob> jobs= Batch.read(new StringReader("C3C3C2C2C1C1 hexene\nC3C3CC2CC\nC3C3C2C2C1C1 again\n"),new GenerationJob(null,filedir));
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		assertEquals(0,new Batch(2).run(jobs,new PrintStream(bytes,true)));
+		String[] lines= bytes.toString().trim().split("\\R");
+		assertEquals(3,lines.length);
+		String[] names= {"hexene","C3C3CC2CC","again"};
+		for(int i=0;i<lines.length;i++) {
+			String[] fields= lines[i].split("\t");
+			assertEquals(names[i],fields[0]);
+			assertEquals(count(jobs.get(i).molinfo),Long.parseLong(fields[2]));
+			assertTrue(new File(filedir+names[i]+".sdf").length()>0);
+		}
+	}
+
+	@Test
+	/**
+	 * A failing job should not stop the other jobs.
+	 */
+	public void test_failure() throws CloneNotSupportedException, CDKException, IOException, InterruptedException {
+		List<GenerationJob> jobs= new ArrayList<GenerationJob>();
+		jobs.add(new GenerationJob("C3C3CC2CC",folder.getRoot().getPath()+File.separator+"missing"+File.separator));
+		jobs.add(new GenerationJob("C3C3CC2CC",folder.getRoot().getPath()+File.separator));
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		assertEquals(1,new Batch(1).run(jobs,new PrintStream(bytes,true)));
+		String[] lines= bytes.toString().trim().split("\\R");
+		assertTrue(lines[0].contains("failed"));
+		assertEquals(String.valueOf(count("C3C3CC2CC")),lines[1].split("\t")[2]);
+	}
+}
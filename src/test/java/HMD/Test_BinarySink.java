@@ -0,0 +1,105 @@
+package HMD;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Test_BinarySink {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	/**
+	 * The sorted canonical SMILES of the structures read from the binary file.
+	 */
+	private static List<String> read(BinaryReader reader) throws CDKException, IOException {
+		SmilesGenerator smiles= new SmilesGenerator(SmiFlavor.Canonical);
+		List<String> lines= new ArrayList<String>();
+		while(reader.hasNext()) {
+			lines.add(smiles.create(reader.next()));
+		}
+		reader.close();
+		Collections.sort(lines);
+		return lines;
+	}
+
+	@Test
+	/**
+	 * The structures read from the binary file should be the ones of the SMILES file.
+	 */
+	public void test_roundtrip() throws CloneNotSupportedException, CDKException, IOException {
+		for(boolean gzip: new boolean[] {false,true}) {
+			String filedir= folder.getRoot().getPath()+File.separator;
+			GenerationJob smi= new GenerationJob("C3C3CC2CC",filedir);
+			smi.format= "smi";
+			smi.gzip= gzip;
+			GenerationJob bin= new GenerationJob("C3C3CC2CC",filedir);
+			bin.format= "bin";
+			bin.gzip= gzip;
+			assertEquals(37,smi.run());
+			assertEquals(37,bin.run());
+			BinaryReader reader= new BinaryReader(filedir+"output.hmd"+(gzip ? ".gz" : ""));
+			List<String> lines= read(reader);
+			assertEquals(37,reader.read());
+			if(!gzip) {
+				List<String> expected= new ArrayList<String>(Files.readAllLines(new File(filedir+"output.smi").toPath()));
+				Collections.sort(expected);
+				assertEquals(expected,lines);
+				//Each structure of six atoms takes 2+12+8 bytes after the header.
+				assertEquals(5+37*22,new File(filedir+"output.hmd").length());
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * The multiple bonds and the atoms of the input should be kept.
+	 */
+	public void test_orders() throws CDKException, IOException {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C1C1NOS2"));
+		mol.bondadder(0,1);
+		mol.bondadder(0,1);
+		mol.bondadder(1,2);
+		mol.bondadder(2,3);
+		mol.bondadder(2,4);
+		mol.bondadder(2,4);
+		mol.bondadder(0,4);
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		BinarySink sink= new BinarySink(bytes);
+		sink.write(mol.container());
+		sink.close();
+		BinaryReader reader= new BinaryReader(new ByteArrayInputStream(bytes.toByteArray()));
+		IAtomContainer read= reader.next();
+		SmilesGenerator smiles= new SmilesGenerator(SmiFlavor.Canonical);
+		assertEquals(smiles.create(mol.container()),smiles.create(read));
+		assertEquals(2,read.getAtom(5-1).getImplicitHydrogenCount().intValue());
+	}
+
+	@Test
+	/**
+	 * The other files should not be read.
+	 */
+	public void test_magic() {
+		try {
+			new BinaryReader(new ByteArrayInputStream("$$$$\n".getBytes()));
+			fail();
+		}catch(IOException e) {
+			assertEquals("Not a binary file of HMD",e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package HMD;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_CanonicalHash {
+
+	/**
+	 * Builds the molecule of the atom information and adds the bonds given as
+	 * the index pairs with their orders.
+	 */
+	private IAtomContainer molecule(String molinfo, int[][] bonds) {
+		IAtomContainer ac=Generator.build(molinfo);
+		for(int[] b: bonds) {
+			ac.addBond(b[0],b[1],b[2]==1 ? IBond.Order.SINGLE : b[2]==2 ? IBond.Order.DOUBLE : IBond.Order.TRIPLE);
+		}
+		return ac;
+	}
+
+	@Test
+	/**
+	 * 1-butene written with two different atom orders should have the same hash.
+	 */
+	public void test_isomorphic() {
+		IAtomContainer a= molecule("C2C1C2C3",new int[][] {{0,1,2},{1,2,1},{2,3,1}});
+		IAtomContainer b= molecule("C3C2C1C2",new int[][] {{0,1,1},{1,2,1},{3,2,2}});
+		assertArrayEquals(CanonicalHash.hash(a),CanonicalHash.hash(b));
+		assertArrayEquals(CanonicalHash.hash(a,true),CanonicalHash.hash(b,true));
+	}
+
+	@Test
+	/**
+	 * The same skeleton and hydrogens with the double bond at different positions have the same
+	 * connectivity hash but different hashes with the bond orders. Cyclobutene and
+	 * methylenecyclopropane have different connectivities.
+	 */
+	public void test_bondorders() {
+		IAtomContainer a= molecule("C1C1C2C2",new int[][] {{0,1,2},{1,2,1},{2,3,1},{3,0,1}});
+		IAtomContainer b= molecule("C1C1C2C2",new int[][] {{0,1,1},{1,2,2},{2,3,1},{3,0,1}});
+		IAtomContainer c= molecule("C2CC2C2",new int[][] {{0,1,2},{1,2,1},{2,3,1},{3,1,1}});
+		assertArrayEquals(CanonicalHash.hash(a),CanonicalHash.hash(b));
+		assertFalse(Arrays.equals(CanonicalHash.hash(a,true),CanonicalHash.hash(b,true)));
+		assertFalse(Arrays.equals(CanonicalHash.hash(a),CanonicalHash.hash(c)));
+	}
+
+	@Test
+	/**
+	 * The primitive set should keep the keys over the resizes.
+	 */
+	public void test_longhashset() {
+		LongHashSet set= new LongHashSet(4);
+		for(long i=0;i<10000;i++) {
+			assertTrue(set.add(i,i*31));
+		}
+		for(long i=0;i<10000;i++) {
+			assertFalse(set.add(i,i*31));
+			assertTrue(set.contains(i,i*31));
+		}
+		assertFalse(set.contains(1,0));
+		assertEquals(10000,set.size());
+	}
+
+	@Test
+	/**
+	 * In the verification mode, the hashes and the InChIs should agree on the generated structures.
+	 */
+	public void test_verify() throws CloneNotSupportedException, CDKException, java.io.IOException {
+		CanonicalDeduplicator unique= new CanonicalDeduplicator(true);
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		new StreamingGenerator(mol,Generator.ecindices(mol),unique).generate(new SDFSink(new org.openscience.cdk.io.SDFWriter(new java.io.StringWriter())));
+		assertEquals(37,unique.size());
+		assertEquals(0,unique.mismatches());
+	}
+}
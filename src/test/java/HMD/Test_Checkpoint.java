@@ -0,0 +1,180 @@
+package HMD;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_Checkpoint {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	@Test
+	/**
+	 * A generator restored from the saved state should return the remaining structures: with the
+	 * ones returned before the save, they are the structures of the whole generation.
+	 */
+	public void test_restore() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		StreamingGenerator first= new StreamingGenerator(mol,Generator.ecindices(mol));
+		Set<String> inchis= new HashSet<String>();
+		for(int i=0;i<10;i++) {
+			inchis.add(Generator.inchigen(first.next()));
+		}
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		first.save(new DataOutputStream(bytes));
+
+		StreamingGenerator second= new StreamingGenerator(mol,Generator.ecindices(mol));
+		second.restore(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(10,second.count());
+		IAtomContainer ac;
+		while((ac=second.next())!=null) {
+			assertTrue(inchis.add(Generator.inchigen(ac)));
+		}
+		assertEquals(37,inchis.size());
+		assertEquals(37,second.count());
+	}
+
+	@Test
+	/**
+	 * After a failure of the generation, the generation resumed from the checkpoint should
+	 * complete the sdf file without writing a structure twice.
+	 */
+	public void test_resume() throws CloneNotSupportedException, CDKException, IOException {
+		File output= new File(folder.getRoot(),"output.sdf");
+		File file= new File(folder.getRoot(),"output.checkpoint");
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		stop(file,output,"C3C3CC2CC");
+
+		Checkpoint checkpoint= new Frequent(file,output,"C3C3CC2CC");
+		StreamingGenerator resumed= new StreamingGenerator(mol,Generator.ecindices(mol));
+		long offset= checkpoint.restore(resumed);
+		assertTrue(offset<=output.length());
+		AsyncSDFSink rest= new AsyncSDFSink(output.getPath(),offset);
+		assertEquals(37,resumed.generate(rest,checkpoint));
+		rest.close();
+		assertEquals(37,read(output));
+	}
+
+	@Test
+	/**
+	 * A job resumed from the checkpoint of a stopped run should also complete its sdf file.
+	 */
+	public void test_job() throws CloneNotSupportedException, CDKException, IOException {
+		String dir= folder.getRoot().getPath()+File.separator;
+		GenerationJob job= new GenerationJob("C3C3CC2CC",dir);
+		File output= new File(dir+"output.sdf");
+		File file= new File(dir+"output.checkpoint");
+		stop(file,output,job.identity());
+		job.resume= true;
+		assertEquals(37,job.run());
+		assertEquals(37,read(output));
+		assertTrue(!file.exists());
+	}
+
+	/**
+	 * Runs the generation with frequent checkpoints until its sink fails after 20 structures.
+	 */
+	private static void stop(File file, File output, String input) throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		final AsyncSDFSink sink= new AsyncSDFSink(output.getPath(),false);
+		StructureSink failing= new StructureSink() {
+			int written= 0;
+			public void write(IAtomContainer ac) throws CDKException, IOException {
+				if(++written>20) throw new IOException("pre-empted");
+				sink.write(ac);
+			}
+			public void flush() throws IOException {
+				sink.flush();
+			}
+			public void close() throws IOException {
+				sink.close();
+			}
+		};
+		try {
+			new StreamingGenerator(mol,Generator.ecindices(mol)).generate(failing,new Frequent(file,output,input));
+			fail("The generation is not stopped");
+		}catch(IOException e) {
+			failing.close();
+		}
+		assertTrue(file.exists());
+	}
+
+	/**
+	 * The number of the structures of the sdf file, checked to be different.
+	 */
+	private static int read(File output) throws CDKException, IOException {
+		Set<String> inchis= new HashSet<String>();
+		IteratingSDFReader reader= new IteratingSDFReader(new FileReader(output),SilentChemObjectBuilder.getInstance());
+		int read=0;
+		while(reader.hasNext()) {
+			inchis.add(Generator.inchigen(reader.next()));
+			read++;
+		}
+		reader.close();
+		assertEquals(read,inchis.size());
+		return read;
+	}
+
+	@Test
+	/**
+	 * A checkpoint should not be resumed with other constraints, pruning or output format: the
+	 * structures written after it would not fit the output file.
+	 */
+	public void test_identity() throws CloneNotSupportedException, CDKException, IOException {
+		String dir= folder.getRoot().getPath()+File.separator;
+		String identity= new GenerationJob("C3C3CC2CC",dir).identity();
+		GenerationJob job= new GenerationJob("C3C3CC2CC",dir);
+		job.constraints= Constraints.parse("maxorder=2");
+		assertTrue(!identity.equals(job.identity()));
+		GenerationJob other= new GenerationJob("C3C3CC2CC",dir);
+		other.pruning= false;
+		assertTrue(!identity.equals(other.identity()));
+		other= new GenerationJob("C3C3CC2CC",dir);
+		other.format= "smi";
+		assertTrue(!identity.equals(other.identity()));
+
+		//The checkpoint of a stopped run without constraints.
+		File output= new File(dir+"output.sdf");
+		assertTrue(output.createNewFile());
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		new Checkpoint(new File(dir+"output.checkpoint"),output,identity,3600).save(new StreamingGenerator(mol,Generator.ecindices(mol)),new SDFSink(new SDFWriter(new StringWriter())));
+		job.resume= true;
+		try {
+			job.run();
+			fail("resumed with other constraints");
+		}catch(IOException e) {
+		}
+	}
+
+	private static class Frequent extends Checkpoint {
+		private int steps= 0;
+
+		Frequent(File file, File output, String input){
+			super(file,output,input,0);
+		}
+
+		public boolean due() {
+			return ++steps%100==0;
+		}
+	}
+}
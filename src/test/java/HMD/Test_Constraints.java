@@ -0,0 +1,203 @@
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_Constraints {
+	private static final String[] SPECS= {
+		"maxorder=1",
+		"forbid=N-O,O-O",
+		"maxdegree=C:2",
+		"rings=0",
+		"rings=1-2",
+		"bad=C=C",
+		"good=C=O",
+		"maxorder=2;forbid=N-N;maxdegree=N:2;rings=0-1;bad=CC(C)C;good=CN"
+	};
+
+	/**
+	 * The graphs of the structures of the streaming or the orderly generator.
+	 */
+	private static List<MoleculeGraph> generate(String molinfo, Constraints constraints, boolean orderly) throws CloneNotSupportedException, CDKException, IOException {
+		final List<MoleculeGraph> graphs= new ArrayList<MoleculeGraph>();
+		GraphSink sink= new GraphSink() {
+			public void write(MoleculeGraph mol) {
+				graphs.add(mol);
+			}
+		};
+		IAtomContainer mol=Generator.build(molinfo);
+		if(orderly) {
+			OrderlyGenerator generator= new OrderlyGenerator(1);
+			generator.constraints(constraints);
+			generator.enumerate(mol,sink);
+			generator.shutdown();
+		}else {
+			StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol));
+			stream.constraints(constraints);
+			stream.enumerate(sink);
+		}
+		return graphs;
+	}
+
+	private static Set<String> hashes(List<MoleculeGraph> graphs) {
+		Set<String> hashes= new HashSet<String>();
+		for(MoleculeGraph mol: graphs) {
+			long[] hash= mol.orderhash(null);
+			hashes.add(hash[0]+":"+hash[1]);
+		}
+		return hashes;
+	}
+
+	/**
+	 * True if the structure meets the constraints, checked bond by bond.
+	 */
+	private static boolean meets(MoleculeGraph mol, Constraints constraints) {
+		MoleculeGraph empty= new MoleculeGraph(mol);
+		int n= mol.atomcount();
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				while(empty.order(i,j)>0) empty.bondremover(i,j);
+			}
+		}
+		empty.constraints(constraints);
+		for(int i=0;i<n;i++) {
+			for(int j=i+1;j<n;j++) {
+				for(int k=0;k<mol.order(i,j);k++) {
+					if(!empty.allows(i,j)) return false;
+					empty.bondadder(i,j);
+				}
+			}
+		}
+		return empty.accepted();
+	}
+
+	@Test
+	/**
+	 * The constraints in the search should give the structures of the unconstrained generation
+	 * meeting the constraints.
+	 */
+	public void test_filter() throws CloneNotSupportedException, CDKException, IOException {
+		for(boolean orderly: new boolean[] {false,true}) {
+			for(String molinfo: new String[] {"C3C3CC2CC","C3C2CNO"}) {
+				List<MoleculeGraph> all= generate(molinfo,null,orderly);
+				for(String spec: SPECS) {
+					Constraints constraints= Constraints.parse(spec);
+					List<MoleculeGraph> filtered= new ArrayList<MoleculeGraph>();
+					for(MoleculeGraph mol: all) {
+						if(meets(mol,constraints)) filtered.add(mol);
+					}
+					List<MoleculeGraph> constrained= generate(molinfo,constraints,orderly);
+					for(MoleculeGraph mol: constrained) {
+						assertTrue(molinfo+" "+spec,meets(mol,constraints));
+					}
+					if(orderly) {
+						assertEquals(molinfo+" "+spec,hashes(filtered),hashes(constrained));
+					}else {
+						//The default duplicate check ignores the bond orders, so a structure of a
+						//rejected one's connectivity can be written instead of being a duplicate.
+						assertTrue(molinfo+" "+spec,hashes(constrained).containsAll(hashes(filtered)));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * The string of the constraints should be the same for the same constraints and parse back
+	 * to them.
+	 */
+	public void test_string() {
+		String spec= "maxorder=2;forbid=N-N,N-O;maxdegree=C:3;rings=0-1;bad=C=C=C;good=C=O";
+		assertEquals(spec,Constraints.parse(spec).toString());
+		assertEquals(spec,Constraints.parse("good=C=O;forbid=O-N,N-N;bad=C=C=C;maxdegree=C:3;rings=0-1;maxorder=2").toString());
+		assertEquals("",new Constraints().toString());
+	}
+
+	@Test
+	/**
+	 * The forbidden bonds should not be added, so fewer structures are built.
+	 */
+	public void test_pruning() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		StreamingGenerator all= new StreamingGenerator(mol,Generator.ecindices(mol));
+		all.enumerate(GraphSink.NONE);
+		StreamingGenerator trees= new StreamingGenerator(mol,Generator.ecindices(mol));
+		trees.constraints(Constraints.parse("maxorder=1;rings=0"));
+		trees.enumerate(GraphSink.NONE);
+		assertTrue(trees.metrics().getExtensions()<all.metrics().getExtensions());
+		assertTrue(trees.count()<all.count());
+	}
+
+	@Test
+	/**
+	 * The fragments should be matched with their bond orders, the rings by the bonds.
+	 */
+	public void test_graph() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C2C2CO"));
+		mol.bondadder(0,1);
+		mol.bondadder(1,2);
+		mol.bondadder(2,0);
+		mol.bondadder(2,3);
+		mol.bondadder(2,3);
+		assertEquals(1,mol.rings());
+		assertEquals(3,mol.degree(2));
+		mol.constraints(Constraints.parse("good=C=O"));
+		assertTrue(mol.accepted());
+		mol.constraints(Constraints.parse("good=C-O"));
+		assertFalse(mol.accepted());
+		//The explicit hydrogens are not atoms of the graph.
+		mol.constraints(Constraints.parse("good=[H]C=O"));
+		assertTrue(mol.accepted());
+		mol.constraints(Constraints.parse("good=[H]C([H])=O"));
+		assertTrue(mol.accepted());
+		mol.constraints(Constraints.parse("bad=C1CC1"));
+		assertFalse(mol.accepted());
+		//The carbonyl is on the saturated oxygen, so it stays in the extensions.
+		mol.constraints(Constraints.parse("bad=C=O"));
+		assertTrue(mol.prunable());
+		mol.constraints(Constraints.parse("bad=O=C[H]"));
+		assertTrue(mol.prunable());
+		mol.constraints(Constraints.parse("maxdegree=C:3;rings=0-1"));
+		assertTrue(mol.allows(0,1));
+		//A second ring is not allowed.
+		MoleculeGraph chain= new MoleculeGraph(Generator.build("CCCC"));
+		chain.constraints(Constraints.parse("rings=0-1"));
+		chain.bondadder(0,1);
+		chain.bondadder(1,2);
+		chain.bondadder(2,0);
+		chain.bondadder(2,3);
+		assertFalse(chain.allows(3,0));
+		assertTrue(chain.allows(3,2));
+		chain.constraints(Constraints.parse("maxorder=1"));
+		assertFalse(chain.allows(3,2));
+		chain.constraints(Constraints.parse("maxdegree=C:2"));
+		assertFalse(chain.allows(1,3));
+	}
+
+	@Test
+	/**
+	 * The strings which are not constraints should be rejected.
+	 */
+	public void test_parse() {
+		for(String spec: new String[] {"maxorder","maxorder=x","forbid=N","maxdegree=C","colour=red","bad=C((","good=[H][H]","bad=[H]"}) {
+			try {
+				Constraints.parse(spec);
+				fail(spec);
+			}catch(IllegalArgumentException e) {
+			}
+		}
+	}
+}
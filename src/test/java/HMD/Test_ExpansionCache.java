@@ -0,0 +1,87 @@
+package HMD;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_ExpansionCache {
+
+	@Test
+	/**
+	 * The same structure should be found for the same stage, also if its bonds are added in
+	 * another order, and the least recently used entries should be evicted.
+	 */
+	public void test_visit() {
+		ExpansionCache cache= new ExpansionCache(2);
+		MoleculeGraph a= new MoleculeGraph(Generator.build("C2C2C2"));
+		a.bondadder(0,1);
+		a.bondadder(1,2);
+		MoleculeGraph b= new MoleculeGraph(Generator.build("C2C2C2"));
+		b.bondadder(1,2);
+		b.bondadder(0,1);
+		assertTrue(cache.visit(a,0));
+		assertFalse(cache.visit(b,0));
+		assertTrue(cache.visit(b,1));
+		//The entry of the stage 0 is used more recently, so the one of the stage 1 is evicted.
+		assertFalse(cache.visit(a,0));
+		assertTrue(cache.visit(a,2));
+		assertEquals(2,cache.size());
+		assertTrue(cache.visit(a,1));
+		assertEquals(2,cache.hits());
+		assertEquals(4,cache.misses());
+		assertEquals(2,cache.evictions());
+		assertTrue(new ExpansionCache(0).visit(a,0));
+	}
+
+	@Test
+	/**
+	 * A large cache should be split into stripes, record every entry once when it is visited
+	 * by several threads together, and keep at most its size.
+	 */
+	public void test_stripes() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C2C2C2"));
+		ExpansionCache cache= new ExpansionCache(1<<16);
+		IntStream.range(0,4).parallel().forEach(i -> {
+			for(int stage=0;stage<10000;stage++) cache.visit(mol,stage);
+		});
+		assertEquals(10000,cache.misses());
+		assertEquals(30000,cache.hits());
+		assertEquals(10000,cache.size());
+		assertEquals(0,cache.evictions());
+		ExpansionCache small= new ExpansionCache(4096);
+		for(int stage=0;stage<10000;stage++) small.visit(mol,stage);
+		assertTrue(small.size()<=4096);
+		assertEquals(10000-small.size(),small.evictions());
+	}
+
+	@Test
+	/**
+	 * The cache should not change the generated structures, even when it is much smaller than
+	 * the number of the extensions.
+	 */
+	public void test_generate() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		InChIDeduplicator expected= new InChIDeduplicator();
+		StreamingGenerator full= new StreamingGenerator(mol,Generator.ecindices(mol),expected);
+		full.cache(new ExpansionCache(0));
+		full.generate(new SDFSink(new SDFWriter(new StringWriter())));
+		for(int size: new int[] {64,ExpansionCache.SIZE}) {
+			InChIDeduplicator inchis= new InChIDeduplicator();
+			StreamingGenerator cached= new StreamingGenerator(mol,Generator.ecindices(mol),inchis);
+			cached.cache(new ExpansionCache(size));
+			cached.generate(new SDFSink(new SDFWriter(new StringWriter())));
+			assertEquals(expected.inchis(),inchis.inchis());
+			assertTrue(cached.metrics().getCacheHits()>0);
+			assertTrue(cached.metrics().getExtensions()<full.metrics().getExtensions());
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package HMD;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Test_Formula {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	@Test
+	/**
+	 * Each hydrogen distribution of the hexanes should be enumerated once.
+	 */
+	public void test_distributions() {
+		assertEquals(Arrays.asList("C3C3C3C3C2C","C3C3C3C3C1C1","C3C3C3C2C2C1","C3C3C2C2C2C2"),Formula.distributions("C6H14"));
+		assertEquals(Arrays.asList("C4"),Formula.distributions("CH4"));
+		assertEquals(Arrays.asList("C3C3O","C3C2O1"),Formula.distributions("C2H6O"));
+		//The distributions without a saturated structure are not kept, like C3C3C for C3H6.
+		assertEquals(Arrays.asList("C3C2C1","C2C2C2"),Formula.distributions("C3H6"));
+	}
+
+	@Test
+	/**
+	 * The formulas which are not valid or with elements without a valence should be rejected.
+	 */
+	public void test_invalid() {
+		for(String formula: new String[] {"","c6H14","C6H14-","H2","C2Xx"}) {
+			try {
+				new Formula(formula);
+				fail(formula);
+			}catch(IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * The job should generate the structures of all the distributions of the formula.
+	 */
+	public void test_job() throws CloneNotSupportedException, CDKException, IOException {
+		GenerationJob job= new GenerationJob("C6H14",folder.getRoot().getPath()+File.separator);
+		job.formula= true;
+		assertEquals(5,job.run());
+		assertEquals(5,job.metrics().getWritten());
+		job.orderly= true;
+		job.name= "orderly";
+		assertEquals(5,job.run());
+
+		GenerationJob butenes= new GenerationJob("C4H8",folder.getRoot().getPath()+File.separator);
+		butenes.formula= true;
+		butenes.orderly= true;
+		assertEquals(5,butenes.run());
+	}
+
+	@Test
+	/**
+	 * The default mode should only write the structures with all the atoms saturated for a
+	 * formula: C3H6 is propene or cyclopropane, without the radicals.
+	 */
+	public void test_saturated() throws CloneNotSupportedException, CDKException, IOException {
+		for(int threads: new int[] {1,2}) {
+			GenerationJob job= new GenerationJob("C3H6",folder.getRoot().getPath()+File.separator);
+			job.formula= true;
+			job.threads= threads;
+			job.format= "smi";
+			assertEquals(2,job.run());
+			assertEquals(2,job.metrics().getWritten());
+		}
+		GenerationJob job= new GenerationJob("C4H8",folder.getRoot().getPath()+File.separator);
+		job.formula= true;
+		assertEquals(5,job.run());
+	}
+}
@@ -0,0 +1,125 @@
+package HMD;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_GenerationServer {
+	private GenerationServer server;
+
+	@Before
+	public void start() throws IOException {
+		server= new GenerationServer(new InetSocketAddress("127.0.0.1",0),1,0,2,60);
+		server.start();
+	}
+
+	@After
+	public void stop() {
+		server.close();
+	}
+
+	private HttpURLConnection connect(String path, String method) throws IOException {
+		HttpURLConnection connection= (HttpURLConnection) new URL("http://127.0.0.1:"+server.port()+path).openConnection();
+		connection.setRequestMethod(method);
+		return connection;
+	}
+
+	private static List<String> lines(InputStream in) throws IOException {
+		List<String> lines= new ArrayList<String>();
+		try(BufferedReader reader= new BufferedReader(new InputStreamReader(in,StandardCharsets.UTF_8))) {
+			String line;
+			while((line=reader.readLine())!=null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	private List<String> get(String path) throws IOException {
+		return lines(connect(path,"GET").getInputStream());
+	}
+
+	@Test
+	/**
+	 * The structures should be streamed as SMILES and the last line should be the state.
+	 */
+	public void test_generate() throws IOException {
+		List<String> lines= get("/generate?input=C3C3CC2CC&threads=2");
+		assertEquals(38,lines.size());
+		assertEquals(37,new HashSet<String>(lines.subList(0,37)).size());
+		assertTrue(lines.get(37),lines.get(37).startsWith("# finished 37 "));
+		lines= get("/generate?input=C6H14&formula=true&orderly=true&format=count");
+		assertEquals(1,lines.size());
+		assertTrue(lines.get(0),lines.get(0).startsWith("# finished 5 "));
+		lines= get("/generate?input=C3C3CC2CC&orderly=true&constraints=maxorder%3D1");
+		assertTrue(lines.get(0),lines.get(0).startsWith("# finished 0 "));
+	}
+
+	@Test
+	/**
+	 * The invalid requests should be rejected before the job is queued.
+	 */
+	public void test_invalid() throws IOException {
+		for(String query: new String[] {"","input=Xx3","input=C3C3&format=sdf","input=C3C3&threads=3","input=C3C3&timeout=0","input=H2&formula=true","input=C3C3&constraints=colour%3Dred"}) {
+			assertEquals(query,400,connect("/generate?"+query,"GET").getResponseCode());
+		}
+		assertEquals(404,connect("/jobs/1","DELETE").getResponseCode());
+		assertEquals(404,connect("/unknown","GET").getResponseCode());
+	}
+
+	@Test
+	/**
+	 * A running job should be cancelled by its id, and a job beyond the limits should be
+	 * rejected while it runs.
+	 */
+	public void test_cancel() throws Exception {
+		ExecutorService client= Executors.newSingleThreadExecutor();
+		final HttpURLConnection connection= connect("/generate?input=C3C3CC2CCC1C1&format=count","GET");
+		Future<List<String>> response= client.submit(new Callable<List<String>>() {
+			public List<String> call() throws IOException {
+				return lines(connection.getInputStream());
+			}
+		});
+		String id= null;
+		for(int i=0;i<100 && id==null;i++) {
+			Thread.sleep(20);
+			String jobs= get("/jobs").get(0);
+			if(jobs.contains("\"running\"")) id= jobs.replaceAll(".*\"id\":([0-9]+).*","$1");
+		}
+		assertEquals(503,connect("/generate?input=C3C3","GET").getResponseCode());
+		assertEquals(200,connect("/jobs/"+id,"DELETE").getResponseCode());
+		List<String> lines= response.get();
+		assertEquals(id,connection.getHeaderField("X-HMD-Job"));
+		assertTrue(lines.get(0),lines.get(0).startsWith("# cancelled "));
+		assertEquals("[]",get("/jobs").get(0));
+		client.shutdown();
+	}
+
+	@Test
+	/**
+	 * A job should be stopped at its timeout.
+	 */
+	public void test_timeout() throws IOException {
+		List<String> lines= get("/generate?input=C3C3CC2CCC1C1&format=count&timeout=1");
+		assertTrue(lines.get(0),lines.get(0).startsWith("# timeout "));
+	}
+}
@@ -16,8 +16,11 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 
 /**
  * @cdk.module test-standard
@@ -187,6 +190,32 @@ public class Test_Generator {
 		 */
 		assertEquals(2323,mols.size());
 	}
+
+	@Test
+	/**
+	 * The invalid values of the options should be printed with the usage, not be ignored.
+	 */
+	public void test_options() throws CloneNotSupportedException, CDKException, IOException {
+		String[][] cases= {
+			{"-t","x","The value of the threads option is not a number: x"},
+			{"-s","3/2","Invalid shard: 3/2"},
+			{"-u","foo","Unknown duplicate check: foo"},
+			{"-w","png","Unknown output format: png"},
+			{"-y","N=x","Not a valence like N=5: N=x"}};
+		for(String[] option: cases) {
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			PrintStream stdout= System.out;
+			System.setOut(new PrintStream(out,true,"UTF-8"));
+			try {
+				Generator.main(new String[] {"-i","C3C3CC2CC","-d",System.getProperty("java.io.tmpdir")+File.separator,option[0],option[1]});
+			}finally {
+				System.setOut(stdout);
+			}
+			String printed= out.toString("UTF-8");
+			assertTrue(printed,printed.startsWith(option[2]+System.lineSeparator()));
+			assertTrue(printed.contains("usage:"));
+		}
+	}
 	
 }
 
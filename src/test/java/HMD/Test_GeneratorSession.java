@@ -0,0 +1,135 @@
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_GeneratorSession {
+
+	/**
+	 * The sink keeping the InChIs of the structures.
+	 */
+	private static class InChISink implements StructureSink {
+		final List<String> inchis= new ArrayList<String>();
+		GeneratorSession session;
+
+		public void write(IAtomContainer mol) throws CDKException {
+			inchis.add(session.inchi(mol));
+		}
+
+		public void close() {
+		}
+	}
+
+	@Test
+	/**
+	 * The sessions should give the numbers of structures of the generators, also when they
+	 * run at the same time.
+	 */
+	public void test_concurrent() throws InterruptedException, ExecutionException {
+		final String[] inputs= {"C3C3CC2CC","C3C3C2C2C1C1","C3C3CC2CC","C3C3C2CC2C1"};
+		long[] expected= {37,21,37,48};
+		ExecutorService pool= Executors.newFixedThreadPool(inputs.length);
+		List<Future<Long>> counts= new ArrayList<Future<Long>>();
+		for(final String input: inputs) {
+			counts.add(pool.submit(new Callable<Long>() {
+				public Long call() throws Exception {
+					return GeneratorSession.builder(input).build().generate();
+				}
+			}));
+		}
+		for(int i=0;i<inputs.length;i++) {
+			assertEquals(inputs[i],expected[i],(long) counts.get(i).get());
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	/**
+	 * The structures should be passed to the sink of the session, each of them once.
+	 */
+	public void test_sink() throws CloneNotSupportedException, CDKException, IOException {
+		InChISink sink= new InChISink();
+		GeneratorSession session= GeneratorSession.builder("C3C3CC2CC").threads(2).sink(sink).build();
+		sink.session= session;
+		assertEquals(37,session.generate());
+		assertEquals(37,sink.inchis.size());
+		assertEquals(37,new HashSet<String>(sink.inchis).size());
+		assertEquals(37,session.metrics().getWritten());
+		assertTrue(session.metrics().isFinished());
+	}
+
+	@Test
+	/**
+	 * The metrics of the session should be the ones of its generation while it runs.
+	 */
+	public void test_metrics() throws CloneNotSupportedException, CDKException, IOException {
+		final List<Long> written= new ArrayList<Long>();
+		final GeneratorSession[] session= new GeneratorSession[1];
+		StructureSink sink= new StructureSink() {
+			public void write(IAtomContainer mol) {
+				written.add(session[0].metrics().getWritten());
+			}
+
+			public void close() {
+			}
+		};
+		session[0]= GeneratorSession.builder("C3C3CC2CC").sink(sink).build();
+		assertEquals(37,session[0].generate());
+		assertEquals(36,(long) written.get(36));
+		assertEquals(37,session[0].metrics().getWritten());
+	}
+
+	@Test
+	/**
+	 * A formula session should count the structures of each hydrogen distribution.
+	 */
+	public void test_formula() throws CloneNotSupportedException, CDKException, IOException {
+		GeneratorSession session= GeneratorSession.builder("C6H14").formula(true).orderly(true).build();
+		assertEquals(5,session.generate());
+		assertEquals(4,session.counts().size());
+		long sum= 0;
+		for(long count: session.counts().values()) {
+			sum+= count;
+		}
+		assertEquals(5,sum);
+		session= GeneratorSession.builder("C3C3CC2CC").constraints(Constraints.parse("maxorder=1")).orderly(true).build();
+		assertEquals(0,session.generate());
+	}
+
+	@Test
+	/**
+	 * The invalid options should be rejected by the builder.
+	 */
+	public void test_builder() {
+		try {
+			GeneratorSession.builder("");
+			fail("Empty input accepted");
+		}catch(IllegalArgumentException e) {
+		}
+		try {
+			GeneratorSession.builder("C3C3").threads(0);
+			fail("No threads accepted");
+		}catch(IllegalArgumentException e) {
+		}
+		try {
+			GeneratorSession.builder("C6H14").formula(true).shard(Shard.parse("1/2")).build();
+			fail("Shard of a formula accepted");
+		}catch(IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package HMD;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_Metrics {
+
+	@Test
+	/**
+	 * The counters of the streaming generator should add up: each saturated structure is
+	 * either disconnected, a duplicate or unique, and the unique ones are written.
+	 */
+	public void test_streaming() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol));
+		int count= stream.generate(new SDFSink(new SDFWriter(new StringWriter())));
+		Metrics metrics= stream.metrics();
+		assertTrue(metrics.isFinished());
+		assertEquals(count,metrics.getUnique());
+		assertEquals(count,metrics.getWritten());
+		assertEquals(count,metrics.getContainers());
+		assertEquals(metrics.getSaturated(),metrics.getDisconnected()+metrics.getDuplicates()+metrics.getUnique());
+		assertTrue(metrics.getExtensions()>=metrics.getSaturated());
+		assertTrue(metrics.getSymmetryMisses()>0 && metrics.getSymmetryHits()+metrics.getSymmetryMisses()<=metrics.getExpansions());
+		assertEquals(0,metrics.getPending());
+	}
+
+	@Test
+	/**
+	 * The parallel generator should count the same structures as the streaming generator.
+	 */
+	public void test_parallel() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol));
+		stream.generate(new SDFSink(new SDFWriter(new StringWriter())));
+		ParallelGenerator parallel= new ParallelGenerator(2);
+		parallel.genall(mol,Generator.ecindices(mol),new SDFWriter(new StringWriter()));
+		parallel.shutdown();
+		Metrics expected= stream.metrics();
+		Metrics metrics= parallel.metrics();
+		assertEquals(expected.getExpansions(),metrics.getExpansions());
+		assertEquals(expected.getExtensions(),metrics.getExtensions());
+		assertEquals(expected.getSaturated(),metrics.getSaturated());
+		assertEquals(expected.getWritten(),metrics.getWritten());
+	}
+
+	@Test
+	/**
+	 * The JSON document and the MBean should show the counters.
+	 */
+	public void test_export() throws JMException {
+		Metrics metrics= new Metrics();
+		metrics.written.add(3);
+		metrics.finish();
+		assertTrue(metrics.toJson().startsWith("{\"finished\":true,"));
+		assertTrue(metrics.toJson().contains("\"written\":3,"));
+		metrics.register("test");
+		ObjectName name= new ObjectName("HMD:type=Metrics,name=\"test\"");
+		assertEquals(3L,ManagementFactory.getPlatformMBeanServer().getAttribute(name,"Written"));
+		metrics.unregister();
+		assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
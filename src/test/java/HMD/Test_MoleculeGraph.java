@@ -0,0 +1,120 @@
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import com.google.common.collect.ListMultimap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_MoleculeGraph {
+
+	@Test
+	/**
+	 * The equivalence classes should group the same atoms as the ecenumlist function.
+	 */
+	public void test_ecenumlist() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3C2C2C1C1");
+		mol.addBond(0,4,org.openscience.cdk.interfaces.IBond.Order.SINGLE);
+		ListMultimap<String, Integer> ec=Generator.ecenumlist(mol);
+		Set<List<Integer>> expected= new HashSet<List<Integer>>();
+		for(String key: ec.keySet()) {
+			expected.add(ec.get(key));
+		}
+		Set<List<Integer>> classes= new HashSet<List<Integer>>();
+		for(int[] members: new MoleculeGraph(mol).ecenumlist()) {
+			List<Integer> list= new ArrayList<Integer>();
+			for(int i: members) list.add(i);
+			classes.add(list);
+		}
+		assertEquals(expected,classes);
+		assertArrayEquals(Generator.canonsym(mol),new MoleculeGraph(mol).canonsym());
+	}
+
+	@Test
+	/**
+	 * The same extensions as the atomext function: 4 structures for the index 0.
+	 */
+	public void test_atomext() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C3C3C2C2C1C1CCC"));
+		List<MoleculeGraph> ext= mol.atomext(0);
+		assertEquals(4,ext.size());
+		//The input graph is not modified.
+		assertEquals(0,mol.ordsum(0));
+		assertEquals(1,ext.get(0).ordsum(0));
+	}
+
+	@Test
+	/**
+	 * The bond order sums are updated by the bond adder and remover.
+	 */
+	public void test_satcheck() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C3C3C2C2C1C1"));
+		assertTrue(mol.satcheck(0));
+		assertEquals(1,mol.opencounter(1));
+		mol.bondadder(1,2);
+		assertFalse(mol.satcheck(1));
+		assertEquals(1,mol.opencounter(2));
+		mol.bondadder(1,2);
+		assertEquals(2,mol.order(2,1));
+		mol.bondremover(1,2);
+		assertEquals(1,mol.order(1,2));
+		assertEquals(1,mol.ordsum(1));
+		assertEquals(1,mol.ordsum(2));
+	}
+
+	@Test
+	/**
+	 * The atom container of the graph should have the same atoms and bonds.
+	 */
+	public void test_container() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C2C2C2"));
+		mol.bondadder(0,1);
+		mol.bondadder(0,1);
+		assertFalse(mol.connected());
+		mol.bondadder(1,2);
+		assertTrue(mol.connected());
+		IAtomContainer ac= mol.container();
+		assertEquals(3,ac.getAtomCount());
+		assertEquals(2,ac.getBondCount());
+		assertEquals(2,ac.getBond(ac.getAtom(0),ac.getAtom(1)).getOrder().numeric().intValue());
+		assertTrue(Arrays.equals(CanonicalHash.hash(ac),mol.hash()));
+	}
+
+	@Test
+	/**
+	 * The components should follow the added and removed bonds, and the pruning bound should
+	 * find the graphs which can never be connected.
+	 */
+	public void test_connectable() {
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C3C3C2"));
+		int[] indices= {0,1,2};
+		assertEquals(3,mol.components());
+		assertEquals(2,mol.connectable(indices));
+		//The bond saturates the atoms 0 and 1, so their component can not be joined with the atom 2.
+		mol.bondadder(0,1);
+		assertEquals(2,mol.components());
+		assertEquals(-1,mol.connectable(indices));
+		mol.bondremover(0,1);
+		assertEquals(3,mol.components());
+
+		//Two components need one open atom among the later indices; the saturated atom 1 is not enough.
+		mol= new MoleculeGraph(Generator.build("C2C3C3"));
+		mol.bondadder(0,1);
+		assertEquals(2,mol.connectable(new int[] {1,0,2}));
+		assertEquals(1,mol.connectable(new int[] {0,2,1}));
+		mol.bondadder(0,2);
+		assertTrue(mol.connected());
+	}
+}
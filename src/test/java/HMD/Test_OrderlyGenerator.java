@@ -0,0 +1,89 @@
+package HMD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_OrderlyGenerator {
+
+	/**
+	 * The structures passed to the sink.
+	 */
+	private static class ListSink implements StructureSink {
+		final List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
+
+		public void write(IAtomContainer mol) {
+			mols.add(mol);
+		}
+
+		public void close() {
+		}
+	}
+
+	private static boolean saturated(IAtomContainer mol) {
+		for(IAtom atom: mol.atoms()) {
+			int sum= atom.getImplicitHydrogenCount();
+			for(IBond bond: mol.getConnectedBondsList(atom)) {
+				sum+= bond.getOrder().numeric();
+			}
+			if(sum!=Generator.valences.get(atom.getSymbol())) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The InChIs of the saturated structures of the streaming generator.
+	 */
+	private static Set<String> streaming(String molinfo) throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build(molinfo);
+		ListSink sink= new ListSink();
+		new StreamingGenerator(mol,Generator.ecindices(mol),new InChIDeduplicator()).generate(sink);
+		Set<String> inchis= new HashSet<String>();
+		for(IAtomContainer ac: sink.mols) {
+			if(saturated(ac)) inchis.add(Generator.inchigen(ac));
+		}
+		return inchis;
+	}
+
+	@Test
+	/**
+	 * The orderly generator should generate the saturated structures of the streaming generator,
+	 * each of them once.
+	 */
+	public void test_generate() throws CloneNotSupportedException, CDKException, IOException {
+		String[] inputs= {"C3C3C2C2C1C1","C3C3CC2CC","C3C3C1C1N1O","C3C2C2N2O1","C2C2C1C1C1C1"};
+		int[] counts= {8,9,12,0,14};
+		for(int k=0;k<inputs.length;k++) {
+			String molinfo= inputs[k];
+			Set<String> expected= streaming(molinfo);
+			OrderlyGenerator orderly= new OrderlyGenerator(2);
+			ListSink sink= new ListSink();
+			long count= orderly.generate(Generator.build(molinfo),sink);
+			orderly.shutdown();
+			assertEquals(molinfo,counts[k],count);
+			assertEquals(count,sink.mols.size());
+			Set<String> inchis= new HashSet<String>();
+			Set<List<Long>> hashes= new HashSet<List<Long>>();
+			for(IAtomContainer ac: sink.mols) {
+				assertTrue(saturated(ac));
+				inchis.add(Generator.inchigen(ac));
+				long[] hash= CanonicalHash.hash(ac,true);
+				assertTrue(molinfo,hashes.add(java.util.Arrays.asList(hash[0],hash[1])));
+			}
+			//The streaming generator misses the cumulated three-membered ring of C3C3CC2CC.
+			assertTrue(molinfo,inchis.containsAll(expected));
+			assertEquals(molinfo,k==1 ? expected.size()+1 : expected.size(),inchis.size());
+		}
+	}
+}
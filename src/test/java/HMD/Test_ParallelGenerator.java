@@ -0,0 +1,66 @@
+package HMD;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class Test_ParallelGenerator {
+
+	@Before
+	public void cleanlists() {
+		Generator.uniquecheck.clear();
+		Generator.atomextlist.clear();
+		Generator.atomsatlist.clear();
+	}
+
+	/**
+	 * The InChIs written by the sequential genall function.
+	 */
+	private HashSet<String> sequential(String molinfo) throws CloneNotSupportedException, CDKException, IOException {
+		cleanlists();
+		List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
+		IAtomContainer mol=Generator.build(molinfo);
+		mols.add(mol);
+		Generator.genall(mols,Generator.ecindices(mol),new SDFWriter(new StringWriter()));
+		return new HashSet<String>(Generator.uniquecheck);
+	}
+
+	@Test
+	/**
+	 * The parallel generator should write the same structures as the genall function.
+	 */
+	public void test_genall() throws CloneNotSupportedException, CDKException, IOException {
+		for(String molinfo: new String[] {"C3C3C2C2C1C1","C3C3CC2CC"}) {
+			HashSet<String> expected= sequential(molinfo);
+			InChIDeduplicator inchis= new InChIDeduplicator();
+			ParallelGenerator parallel= new ParallelGenerator(4,inchis);
+			IAtomContainer mol=Generator.build(molinfo);
+			int count=parallel.genall(mol,Generator.ecindices(mol),new SDFWriter(new StringWriter()));
+			parallel.shutdown();
+			assertEquals(expected.size(),count);
+			assertEquals(expected,inchis.inchis());
+		}
+	}
+
+	@Test
+	/**
+	 * With the canonical hashes, the number of structures should be the same.
+	 */
+	public void test_canonical() throws CloneNotSupportedException, CDKException, IOException {
+		HashSet<String> expected= sequential("C3C3CC2CC");
+		ParallelGenerator parallel= new ParallelGenerator(4);
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		assertEquals(expected.size(),parallel.genall(mol,Generator.ecindices(mol),new SDFWriter(new StringWriter())));
+		parallel.shutdown();
+	}
+}
@@ -0,0 +1,65 @@
+package HMD;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_Regression {
+
+	@Test
+	/**
+	 * The small formulas of the ladder should give their published numbers of isomers, with
+	 * one and several threads.
+	 */
+	public void test_ladder() throws CloneNotSupportedException, CDKException, IOException {
+		String[][] cases= Regression.cases("C4H10=2,C7H16=9,C8H18=18,C4H10O=7,C4H11N=8,C3H6Cl2=4,C5H10=10,C3H6O=9");
+		for(int threads: new int[] {1,2}) {
+			List<Regression.Result> results= Regression.run(cases,threads,null);
+			assertEquals(2*cases.length,results.size());
+			assertTrue(Regression.passed(results));
+			assertTrue(Regression.toJson(results,threads).contains("\"passed\":true"));
+		}
+	}
+
+	@Test
+	/**
+	 * A wrong number should fail the suite, both modes should be checked for the unsaturated
+	 * formulas and the formulas without a number should not be checked.
+	 */
+	public void test_failure() throws CloneNotSupportedException, CDKException, IOException {
+		List<Regression.Result> results= Regression.run(Regression.cases("C6H14=6"),1,null);
+		assertFalse(results.get(0).passed());
+		assertFalse(Regression.passed(results));
+		assertTrue(Regression.toJson(results,1).contains("\"passed\":false"));
+
+		results= Regression.run(Regression.cases("C4H8=5,C6H14"),1,null);
+		assertEquals(5,results.get(1).expected);
+		assertEquals("ok",results.get(1).status());
+		assertEquals(-1,results.get(2).expected);
+		assertEquals(5,results.get(2).count);
+		assertTrue(Regression.passed(results));
+	}
+
+	@Test
+	/**
+	 * A known failure should be reported without failing the suite, and as fixed when it
+	 * gives the expected number.
+	 */
+	public void test_known() throws CloneNotSupportedException, CDKException, IOException {
+		List<Regression.Result> results= Regression.run(Regression.cases("C4H8=6=orderly,C4H8=5=default"),1,null);
+		assertEquals("known",results.get(0).status());
+		assertEquals("failed",results.get(1).status());
+		assertEquals("ok",results.get(2).status());
+		assertEquals("fixed",results.get(3).status());
+		assertFalse(Regression.passed(results));
+		assertTrue(Regression.passed(results.subList(0,1)));
+		assertTrue(Regression.passed(results.subList(2,4)));
+		assertTrue(Regression.toJson(results,1).contains("\"status\":\"known\""));
+	}
+}
@@ -0,0 +1,124 @@
+package HMD;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_Reservoir {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	/**
+	 * The canonical hashes of the graphs.
+	 */
+	private static Set<String> hashes(Iterable<MoleculeGraph> graphs) {
+		Set<String> hashes= new HashSet<String>();
+		for(MoleculeGraph mol: graphs) {
+			long[] hash= mol.hash();
+			hashes.add(hash[0]+":"+hash[1]);
+		}
+		return hashes;
+	}
+
+	@Test
+	/**
+	 * The sample should have the given size and be a part of the generated structures; the
+	 * same seed should give the same sample.
+	 */
+	public void test_sample() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		final Set<String> all= new HashSet<String>();
+		StreamingGenerator stream= new StreamingGenerator(mol,Generator.ecindices(mol));
+		int count= stream.enumerate(new GraphSink() {
+			public void write(MoleculeGraph mol) {
+				long[] hash= mol.hash();
+				all.add(hash[0]+":"+hash[1]);
+			}
+		});
+		assertEquals(37,count);
+		assertEquals(37,all.size());
+
+		Reservoir first= new Reservoir(10,7);
+		new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(first);
+		assertEquals(37,first.seen());
+		assertEquals(10,first.samples().size());
+		assertTrue(all.containsAll(hashes(first.samples())));
+		assertEquals(10,hashes(first.samples()).size());
+
+		Reservoir second= new Reservoir(10,7);
+		new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(second);
+		assertEquals(hashes(first.samples()),hashes(second.samples()));
+
+		Reservoir larger= new Reservoir(100,7);
+		new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(larger);
+		assertEquals(all,hashes(larger.samples()));
+		assertEquals(37,larger.output(new SDFSink(new SDFWriter(new StringWriter()))));
+	}
+
+	@Test
+	/**
+	 * Each structure should be sampled about equally often.
+	 */
+	public void test_uniform() {
+		int[] times= new int[20];
+		MoleculeGraph[] graphs= new MoleculeGraph[20];
+		for(int i=0;i<20;i++) {
+			graphs[i]= new MoleculeGraph(Generator.build("C"+i));
+		}
+		for(int seed=0;seed<2000;seed++) {
+			Reservoir reservoir= new Reservoir(5,seed);
+			for(MoleculeGraph mol: graphs) {
+				reservoir.write(mol);
+			}
+			for(MoleculeGraph mol: reservoir.samples()) {
+				for(int i=0;i<20;i++) {
+					if(graphs[i]==mol) times[i]++;
+				}
+			}
+		}
+		//Each structure is expected 500 times.
+		for(int i=0;i<20;i++) {
+			assertTrue(String.valueOf(times[i]),times[i]>400 && times[i]<600);
+		}
+	}
+
+	@Test
+	/**
+	 * The count only mode should not write an output file; the sample mode should write the
+	 * sample only.
+	 */
+	public void test_job() throws CloneNotSupportedException, CDKException, IOException {
+		String filedir= folder.getRoot().getPath()+File.separator;
+		GenerationJob count= new GenerationJob("C3C3CC2CC",filedir);
+		count.countonly= true;
+		assertEquals(37,count.run());
+		assertEquals(0,count.metrics().getContainers());
+		assertFalse(new File(filedir+"output.sdf").exists());
+
+		GenerationJob sample= new GenerationJob("C6H14",filedir);
+		sample.formula= true;
+		sample.sample= 3;
+		sample.threads= 2;
+		assertEquals(5,sample.run());
+		int written= 0;
+		for(String line: Files.readAllLines(Paths.get(filedir+"output.sdf"))) {
+			if(line.equals("$$$$")) written++;
+		}
+		assertEquals(3,written);
+	}
+}
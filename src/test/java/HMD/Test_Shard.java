@@ -0,0 +1,128 @@
+package HMD;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_Shard {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	@Test
+	/**
+	 * The shards should split the extensions of the generation and generate all the structures
+	 * together.
+	 */
+	public void test_shards() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		InChIDeduplicator all= new InChIDeduplicator();
+		StreamingGenerator full= new StreamingGenerator(mol,Generator.ecindices(mol),all);
+		//Without the cache, the extensions of the shards are parts of the ones of the whole generation.
+		full.cache(new ExpansionCache(0));
+		full.generate(new SDFSink(new SDFWriter(new StringWriter())));
+
+		Set<String> union= new HashSet<String>();
+		long extensions= 0;
+		for(int k=1;k<=3;k++) {
+			InChIDeduplicator inchis= new InChIDeduplicator();
+			StreamingGenerator part= new StreamingGenerator(mol,Generator.ecindices(mol),inchis);
+			part.cache(new ExpansionCache(0));
+			part.shard(new Shard(k,3));
+			part.generate(new SDFSink(new SDFWriter(new StringWriter())));
+			union.addAll(inchis.inchis());
+			assertTrue(part.metrics().getExtensions()<full.metrics().getExtensions()/2);
+			extensions+= part.metrics().getExtensions();
+		}
+		assertEquals(all.inchis(),union);
+		//The extensions before the work units are not counted in the shards.
+		assertTrue(extensions<=full.metrics().getExtensions());
+	}
+
+	@Test
+	/**
+	 * The parallel generator should generate the same structures for a shard as the streaming one.
+	 */
+	public void test_parallel() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		InChIDeduplicator expected= new InChIDeduplicator();
+		StreamingGenerator part= new StreamingGenerator(mol,Generator.ecindices(mol),expected);
+		part.shard(new Shard(2,3));
+		part.generate(new SDFSink(new SDFWriter(new StringWriter())));
+
+		InChIDeduplicator inchis= new InChIDeduplicator();
+		ParallelGenerator parallel= new ParallelGenerator(2,inchis);
+		parallel.genall(mol,Generator.ecindices(mol),new SDFSink(new SDFWriter(new StringWriter())),new Shard(2,3));
+		parallel.shutdown();
+		assertEquals(expected.inchis(),inchis.inchis());
+	}
+
+	@Test
+	/**
+	 * The merged sdf file of the shards should have each structure once.
+	 */
+	public void test_merge() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		List<String> files= new ArrayList<String>();
+		long written= 0;
+		for(int k=1;k<=3;k++) {
+			String file= new File(folder.getRoot(),"output."+k+"of3.sdf").getPath();
+			AsyncSDFSink sink= new AsyncSDFSink(file,false);
+			StreamingGenerator part= new StreamingGenerator(mol,Generator.ecindices(mol));
+			part.shard(new Shard(k,3));
+			written+= part.generate(sink);
+			sink.close();
+			files.add(file);
+		}
+		ShardMerger merger= new ShardMerger(false);
+		AsyncSDFSink sink= new AsyncSDFSink(new File(folder.getRoot(),"merged.sdf").getPath(),false);
+		merger.merge(files,sink);
+		sink.close();
+		assertEquals(written,merger.read());
+		assertEquals(37,merger.written());
+	}
+
+	@Test
+	public void test_parse() {
+		assertEquals("2/4",Shard.parse("2/4").toString());
+		for(String value: new String[] {"0/4","5/4","2"}) {
+			try {
+				Shard.parse(value);
+				fail("Invalid shard accepted: "+value);
+			}catch(IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * The ShardMerger only reads sdf files, so a shard should not be written in another format.
+	 */
+	public void test_format() throws CloneNotSupportedException, CDKException, IOException {
+		for(String format: new String[] {"smi","bin"}) {
+			GenerationJob job= new GenerationJob("C3C3CC2CC",folder.getRoot().getPath()+File.separator);
+			job.shard= Shard.parse("1/2");
+			job.format= format;
+			try {
+				job.run();
+				fail("Shard accepted for the format "+format);
+			}catch(IllegalArgumentException e) {
+			}
+		}
+		assertEquals(0,folder.getRoot().list().length);
+	}
+}
@@ -0,0 +1,113 @@
+package HMD;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_SortingSink {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	/**
+	 * The sorted SMILES of the parallel generation with the duplicate check of the bond orders.
+	 */
+	private String sorted(String molinfo, int threads, int size, Fingerprint print) throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build(molinfo);
+		ParallelGenerator parallel= new ParallelGenerator(threads,new CanonicalDeduplicator(false,true));
+		SortingSink sink= new SortingSink(size,folder.getRoot(),true);
+		parallel.enumerate(mol,Generator.ecindices(mol),sink,null);
+		parallel.shutdown();
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		SmilesSink smiles= new SmilesSink(out);
+		long written= sink.output(print.sink(smiles));
+		assertEquals(written,sink.written());
+		assertEquals(written,print.count());
+		smiles.close();
+		sink.close();
+		assertEquals(0,folder.getRoot().list().length);
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	/**
+	 * The sorted output should be the same with any number of threads, with one structure
+	 * for each connectivity, and the fingerprint should be the one of the generation.
+	 */
+	public void test_parallel() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CCC1");
+		Fingerprint expected= new Fingerprint();
+		int count= new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(expected.graphs(GraphSink.NONE));
+		Fingerprint print= new Fingerprint();
+		String output= sorted("C3C3CC2CCC1",1,SortingSink.SIZE,print);
+		assertEquals(count,output.split("\n").length);
+		assertEquals(expected.toString(),print.toString());
+		for(int threads: new int[] {2,4}) {
+			print= new Fingerprint();
+			assertEquals(output,sorted("C3C3CC2CCC1",threads,SortingSink.SIZE,print));
+			assertEquals(expected.toString(),print.toString());
+		}
+	}
+
+	@Test
+	/**
+	 * With more runs than FANIN, the runs are merged first; the output should not change.
+	 */
+	public void test_runs() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CCC1");
+		SortingSink sink= new SortingSink(1,folder.getRoot(),true);
+		ParallelGenerator parallel= new ParallelGenerator(2,new CanonicalDeduplicator(false,true));
+		parallel.enumerate(mol,Generator.ecindices(mol),sink,null);
+		parallel.shutdown();
+		assertTrue(sink.runs()>SortingSink.FANIN);
+		sink.close();
+		assertEquals(sorted("C3C3CC2CCC1",2,SortingSink.SIZE,new Fingerprint()),sorted("C3C3CC2CCC1",2,1,new Fingerprint()));
+	}
+
+	@Test
+	/**
+	 * The fingerprint option of the command line should print the fingerprint of the run,
+	 * also without the verbose option.
+	 */
+	public void test_option() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		Fingerprint expected= new Fingerprint();
+		new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(expected.graphs(GraphSink.NONE));
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		PrintStream stdout= System.out;
+		System.setOut(new PrintStream(out,true,"UTF-8"));
+		try {
+			Generator.main(new String[] {"-i","C3C3CC2CC","-j","-d",folder.getRoot().getPath()+File.separator});
+		}finally {
+			System.setOut(stdout);
+		}
+		assertEquals("Fingerprint: "+expected+System.lineSeparator(),out.toString("UTF-8"));
+	}
+
+	@Test
+	/**
+	 * The fingerprint should not depend on the order of the structures.
+	 */
+	public void test_fingerprint() {
+		Fingerprint a= new Fingerprint();
+		Fingerprint b= new Fingerprint();
+		long[][] hashes= {{1,2},{-3,4},{5,-6}};
+		for(int i=0;i<hashes.length;i++) {
+			a.add(hashes[i]);
+			b.add(hashes[hashes.length-1-i]);
+		}
+		assertEquals(3,a.count());
+		assertEquals(a.toString(),b.toString());
+		b.add(hashes[0]);
+		assertTrue(!a.toString().equals(b.toString()));
+	}
+}
@@ -0,0 +1,84 @@
+package HMD;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_SpillingDeduplicator {
+	@Rule
+	public TemporaryFolder folder= new TemporaryFolder();
+
+	@Test
+	/**
+	 * With the smallest hot set, the hashes are spilled and the runs are merged, and the
+	 * check should still be exact.
+	 */
+	public void test_spill() throws IOException {
+		SpillingDeduplicator unique= new SpillingDeduplicator(0,folder.getRoot());
+		Set<String> expected= new HashSet<String>();
+		SplittableRandom random= new SplittableRandom(1);
+		long[] keys= new long[2*5000];
+		for(int i=0;i<keys.length;i++) {
+			keys[i]= random.nextLong();
+		}
+		for(int i=0;i<20000;i++) {
+			int k= 2*random.nextInt(keys.length/2);
+			assertEquals(expected.add(keys[k]+":"+keys[k+1]),unique.add(keys[k],keys[k+1]));
+		}
+		assertEquals(expected.size(),unique.size());
+		assertTrue(unique.spills()>SpillingDeduplicator.MAXRUNS);
+		assertTrue(unique.merges()>0);
+		assertTrue(unique.runs()<=SpillingDeduplicator.MAXRUNS);
+
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		unique.save(new DataOutputStream(bytes));
+		unique.close();
+		assertEquals(0,folder.getRoot().list().length);
+		SpillingDeduplicator loaded= new SpillingDeduplicator(0,folder.getRoot());
+		loaded.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(expected.size(),loaded.size());
+		for(int k=0;k<keys.length;k+=2) {
+			assertEquals(!expected.contains(keys[k]+":"+keys[k+1]),loaded.add(keys[k],keys[k+1]));
+		}
+		loaded.close();
+	}
+
+	@Test
+	/**
+	 * The pairs should be sorted by their first and then by their second longs.
+	 */
+	public void test_sort() {
+		long[] keys= {3,1, -2,5, 3,0, 7,7, -2,-9, 0,0};
+		SpillingDeduplicator.sort(keys,0,keys.length/2-1);
+		assertEquals("[-2, -9, -2, 5, 0, 0, 3, 0, 3, 1, 7, 7]",Arrays.toString(keys));
+	}
+
+	@Test
+	/**
+	 * The generation with the spilling check should give the same structures as with the
+	 * check in memory.
+	 */
+	public void test_generation() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3CC2CC1C1");
+		int expected= new StreamingGenerator(mol,Generator.ecindices(mol)).enumerate(GraphSink.NONE);
+		SpillingDeduplicator unique= new SpillingDeduplicator(0,folder.getRoot());
+		assertEquals(expected,new StreamingGenerator(mol,Generator.ecindices(mol),unique).enumerate(GraphSink.NONE));
+		assertTrue(unique.spills()>0);
+		unique.close();
+	}
+}
@@ -0,0 +1,86 @@
+package HMD;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_StreamingGenerator {
+
+	@Before
+	public void cleanlists() {
+		Generator.uniquecheck.clear();
+		Generator.atomextlist.clear();
+		Generator.atomsatlist.clear();
+	}
+
+	@Test
+	/**
+	 * The streaming generator should pass the same structures to the sink as the ones
+	 * written by the genall function.
+	 */
+	public void test_generate() throws CloneNotSupportedException, CDKException, IOException {
+		List<IAtomContainer> mols= new ArrayList<IAtomContainer>();
+		IAtomContainer mol=Generator.build("C3C3CC2CC");
+		mols.add(mol);
+		Generator.genall(mols,Generator.ecindices(mol),new SDFWriter(new StringWriter()));
+
+		final HashSet<String> inchis= new HashSet<String>();
+		StreamingGenerator gen= new StreamingGenerator(Generator.build("C3C3CC2CC"),Generator.ecindices(mol));
+		int count=gen.generate(new StructureSink() {
+			public void write(IAtomContainer ac) throws CDKException {
+				inchis.add(Generator.inchigen(ac));
+			}
+			public void close() {
+			}
+		});
+		assertEquals(Generator.uniquecheck.size(),count);
+		assertEquals(Generator.uniquecheck,inchis);
+	}
+
+	@Test
+	/**
+	 * Only the extensions of the current path are kept; the stack stays far below the
+	 * 2323 intermediates kept by genall for the same input.
+	 */
+	public void test_next() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3C2C2C1C1");
+		StreamingGenerator gen= new StreamingGenerator(mol,Generator.ecindices(mol));
+		int max=0;
+		while(gen.next()!=null) {
+			max=Math.max(max,gen.stacksize());
+		}
+		assertEquals(21,gen.count());
+		assertTrue(max<100);
+	}
+
+	@Test
+	/**
+	 * The pruning should not change the generated structures.
+	 */
+	public void test_pruning() throws CloneNotSupportedException, CDKException, IOException {
+		IAtomContainer mol=Generator.build("C3C3C1C1N1O");
+		InChIDeduplicator expected= new InChIDeduplicator();
+		StreamingGenerator full= new StreamingGenerator(mol,Generator.ecindices(mol),expected);
+		full.pruning(false);
+		full.generate(new SDFSink(new SDFWriter(new StringWriter())));
+
+		InChIDeduplicator inchis= new InChIDeduplicator();
+		StreamingGenerator pruned= new StreamingGenerator(mol,Generator.ecindices(mol),inchis);
+		pruned.generate(new SDFSink(new SDFWriter(new StringWriter())));
+		assertEquals(expected.inchis(),inchis.inchis());
+		assertEquals(0,full.metrics().getPruned());
+		assertTrue(pruned.metrics().getPruned()>0);
+		assertTrue(pruned.metrics().getExtensions()<full.metrics().getExtensions());
+	}
+}
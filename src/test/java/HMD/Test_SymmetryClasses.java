@@ -0,0 +1,64 @@
+package HMD;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Test_SymmetryClasses {
+
+	@Test
+	/**
+	 * The Zobrist key should not depend on the order of the added bonds.
+	 */
+	public void test_key() {
+		MoleculeGraph a= new MoleculeGraph(Generator.build("C3C3C2C2C1C1"));
+		MoleculeGraph b= new MoleculeGraph(a);
+		a.bondadder(0,4);
+		a.bondadder(4,5);
+		a.bondadder(4,5);
+		b.bondadder(5,4);
+		b.bondadder(0,4);
+		b.bondadder(4,5);
+		assertEquals(a.key(),b.key());
+		b.bondremover(4,5);
+		b.bondremover(4,5);
+		b.bondremover(0,4);
+		assertEquals(new MoleculeGraph(Generator.build("C3C3C2C2C1C1")).key(),b.key());
+	}
+
+	@Test
+	/**
+	 * The cached classes should be the calculated ones, and the same graph built in another
+	 * order should be found in the cache.
+	 */
+	public void test_classes() {
+		SymmetryClasses cache= new SymmetryClasses(64);
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C3C3C2C2C1C1"));
+		List<MoleculeGraph> ext= mol.atomext(4);
+		for(MoleculeGraph ac: ext) {
+			assertArrayEquals(SymmetryClasses.calculate(ac),cache.classes(ac));
+		}
+		assertEquals(0,cache.hits());
+		//The extensions are built again as new graphs.
+		for(MoleculeGraph ac: mol.atomext(4)) {
+			assertArrayEquals(SymmetryClasses.calculate(ac),cache.classes(ac));
+		}
+		assertEquals(ext.size(),cache.hits());
+	}
+
+	@Test
+	/**
+	 * Without slots, the classes are calculated each time.
+	 */
+	public void test_nocache() {
+		SymmetryClasses cache= new SymmetryClasses(0);
+		MoleculeGraph mol= new MoleculeGraph(Generator.build("C3C3C2C2C1C1"));
+		cache.classes(mol);
+		cache.classes(mol);
+		assertEquals(0,cache.hits());
+		assertEquals(2,cache.misses());
+	}
+}